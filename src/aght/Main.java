@@ -66,8 +66,7 @@ public class Main extends Application {
 
         letterH.setX(WIDTH / 2);
         letterH.setY(HEIGHT / 2);
-        letterH.setScaleX(2.5);
-        letterH.setScaleY(2);
+        letterH.setScale(2.5, 2);
 
         scene = new Scene(root, WIDTH, HEIGHT, Color.rgb(51, 51, 51));
 
@@ -84,7 +83,7 @@ public class Main extends Application {
             public void handle(long now) {
                 scene.setFill(clearColor);
 
-                if (SAT.collide(letterH, star)) {
+                if (SAT.collide(letterH.getBody(), star.getBody())) {
                     scene.setFill(hitClearColor);
                 }
             }
@@ -93,7 +92,7 @@ public class Main extends Application {
     }
 
     public void handleOnScroll(ScrollEvent e) {
-        star.rotate(star.getRotate() + e.getDeltaY() * 0.1);
+        star.rotate(star.getBody().getRotation() + e.getDeltaY() * 0.1);
     }
 
     public void handleMouseMoved(MouseEvent e) {
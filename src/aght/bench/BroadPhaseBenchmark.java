@@ -0,0 +1,90 @@
+package aght.bench;
+
+import java.util.Random;
+
+import aght.collision.Body;
+import aght.collision.BroadPhase;
+import aght.collision.DynamicTree;
+import aght.collision.SpatialHashGrid;
+import aght.collision.SweepAndPrune;
+import aght.math.Vector2d;
+
+/**
+ * BroadPhaseBenchmark.
+ * <p>
+ * Compares the broad phases on a scene of small polygons moving around at
+ * random. Usage: BroadPhaseBenchmark [bodies] [steps]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class BroadPhaseBenchmark {
+
+    private static final double RADIUS = 5;
+    private static final double SPEED = 1;
+
+    private static long pairs;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        // Keep the density constant, about 8% of the area covered
+        double size = Math.sqrt(n * Math.PI * RADIUS * RADIUS / 0.08);
+
+        run("Sweep and prune", new SweepAndPrune(), n, steps, size);
+        run("Dynamic tree", new DynamicTree(), n, steps, size);
+        run("Spatial hash grid", new SpatialHashGrid(RADIUS * 2), n, steps,
+                size);
+    }
+
+    private static void run(String name, BroadPhase broadPhase, int n,
+            int steps, double size) {
+
+        Random rand = new Random(0);
+        Body[] bodies = new Body[n];
+
+        for (int i = 0; i < n; i++) {
+            bodies[i] = new Body(regularPolygon(RADIUS, 6));
+            bodies[i].setX(rand.nextDouble() * size);
+            bodies[i].setY(rand.nextDouble() * size);
+            broadPhase.add(bodies[i]);
+        }
+
+        pairs = 0;
+        long time = 0;
+
+        for (int step = 0; step < steps; step++) {
+            for (Body body : bodies) {
+                body.setX(body.getX() + (rand.nextDouble() - 0.5) * SPEED);
+                body.setY(body.getY() + (rand.nextDouble() - 0.5) * SPEED);
+                body.getAABB();
+            }
+
+            long start = System.nanoTime();
+            broadPhase.update();
+            broadPhase.findPairs((a, b) -> pairs++);
+            long elapsed = System.nanoTime() - start;
+
+            // First half of the steps is warm up
+            if (step >= steps / 2) {
+                time += elapsed;
+            }
+        }
+
+        System.out.printf("%-20s %8.3f ms/step, %d pairs/step%n", name,
+                time / 1e6 / (steps - steps / 2), pairs / steps);
+    }
+
+    private static Vector2d[] regularPolygon(double radius, int sides) {
+        Vector2d[] vertices = new Vector2d[sides];
+
+        for (int i = 0; i < sides; i++) {
+            double angle = Math.PI * 2 * i / sides;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+}
@@ -0,0 +1,94 @@
+package aght.bench;
+
+import java.util.Random;
+
+import aght.math.BulkTransform;
+import aght.math.Vector2d;
+
+/**
+ * BulkTransformBenchmark.
+ * <p>
+ * Times rotating a vertex buffer of 1k to 1M points with one
+ * {@link Vector2d#rotate(Vector2d, double)} call per point, against the bulk
+ * rotations of {@link BulkTransform} over an array of vectors, an interleaved
+ * array and separate x and y arrays. Usage: BulkTransformBenchmark [rounds]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class BulkTransformBenchmark {
+
+    private static final int[] SIZES = { 1000, 10000, 100000, 1000000 };
+
+    /**
+     * Keeps the results alive so the JIT cannot drop the work.
+     */
+    private static double sink;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        for (int n : SIZES) {
+            Random rand = new Random(n);
+            Vector2d[] vecs = new Vector2d[n];
+            double[] xy = new double[2 * n];
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                vecs[i] = new Vector2d(rand.nextDouble() * 1000,
+                        rand.nextDouble() * 1000);
+                xy[2 * i] = vecs[i].x;
+                xy[2 * i + 1] = vecs[i].y;
+            }
+            BulkTransform.split(xy, xs, ys);
+
+            Vector2d anchor = new Vector2d(500, 500);
+            double angle = 0.01;
+            long[] times = new long[4];
+
+            for (int round = 0; round < rounds; round++) {
+                boolean timed = round >= rounds / 2;
+
+                long start = System.nanoTime();
+                for (Vector2d vec : vecs) {
+                    vec.rotate(anchor, angle);
+                }
+                long mid = System.nanoTime();
+                BulkTransform.rotate(vecs, anchor, angle);
+                long end = System.nanoTime();
+
+                // First half of the rounds is warm up
+                if (timed) {
+                    times[0] += mid - start;
+                    times[1] += end - mid;
+                }
+
+                start = System.nanoTime();
+                BulkTransform.rotate(xy, anchor.x, anchor.y, angle);
+                mid = System.nanoTime();
+                BulkTransform.rotate(xs, ys, n, anchor.x, anchor.y, angle);
+                end = System.nanoTime();
+
+                if (timed) {
+                    times[2] += mid - start;
+                    times[3] += end - mid;
+                }
+
+                sink += vecs[0].x + xy[0] + xs[0];
+            }
+
+            int timedRounds = rounds - rounds / 2;
+            System.out.printf("%7d points  per vector %9.3f ms, "
+                    + "vector array %9.3f ms, interleaved %9.3f ms, "
+                    + "x and y arrays %9.3f ms%n", n,
+                    times[0] / 1e6 / timedRounds, times[1] / 1e6 / timedRounds,
+                    times[2] / 1e6 / timedRounds,
+                    times[3] / 1e6 / timedRounds);
+        }
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
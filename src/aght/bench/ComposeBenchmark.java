@@ -0,0 +1,82 @@
+package aght.bench;
+
+import java.util.Random;
+
+import aght.math.Affine2;
+import aght.math.Matrix;
+
+/**
+ * ComposeBenchmark.
+ * <p>
+ * Times composing the transforms of a hierarchy of bodies, each body's world
+ * transform being its parent's composed with its own, with {@link Affine2}
+ * against 3x3 {@link Matrix} products over homogeneous coordinates. Usage:
+ * ComposeBenchmark [rounds] [bodies]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class ComposeBenchmark {
+
+    /**
+     * Keeps the results alive so the JIT cannot drop the work.
+     */
+    private static double sink;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+        // Every body but the first has an earlier body as its parent
+        Random rand = new Random(0);
+        int[] parents = new int[n];
+        Affine2[] local = new Affine2[n];
+        Matrix[] localMatrices = new Matrix[n];
+
+        for (int i = 0; i < n; i++) {
+            parents[i] = i == 0 ? -1 : rand.nextInt(i);
+            local[i] = Affine2.pose(rand.nextDouble() * 10,
+                    rand.nextDouble() * 10, rand.nextDouble() * Math.PI * 2,
+                    1, 1, 0, 0);
+            localMatrices[i] = local[i].toMatrix();
+        }
+
+        Affine2[] world = new Affine2[n];
+        Matrix[] worldMatrices = new Matrix[n];
+        long affineTime = 0;
+        long matrixTime = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                world[i] = parents[i] < 0 ? local[i]
+                        : world[parents[i]].compose(local[i]);
+            }
+            long mid = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                worldMatrices[i] = parents[i] < 0 ? localMatrices[i]
+                        : Matrix.mult(worldMatrices[parents[i]],
+                                localMatrices[i]);
+            }
+            long end = System.nanoTime();
+
+            // First half of the rounds is warm up
+            if (round >= rounds / 2) {
+                affineTime += mid - start;
+                matrixTime += end - mid;
+            }
+
+            sink += world[n - 1].m02 + worldMatrices[n - 1].get(0, 2);
+        }
+
+        int timedRounds = rounds - rounds / 2;
+        System.out.printf("%d bodies  Affine2 %8.3f ms, Matrix %8.3f ms, "
+                + "%.1f million compositions per second with Affine2%n", n,
+                affineTime / 1e6 / timedRounds, matrixTime / 1e6 / timedRounds,
+                n * (double) timedRounds / (affineTime / 1e3));
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
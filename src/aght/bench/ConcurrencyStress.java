@@ -0,0 +1,185 @@
+package aght.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import aght.collision.Body;
+import aght.collision.CollisionWorld;
+import aght.collision.GJK;
+import aght.collision.Manifold;
+import aght.collision.Pose;
+import aght.collision.SAT;
+import aght.math.Vector2d;
+
+/**
+ * ConcurrencyStress.
+ * <p>
+ * Checks the thread safety contract of the collision classes by running the
+ * same queries on many threads at once and comparing every answer with the
+ * one found on a single thread. Shared prepared bodies are queried directly
+ * and through pose snapshots, and every thread also steps a world of its own
+ * with concave bodies, which share the decomposer. Exits with status 1 on
+ * any mismatch. Usage: ConcurrencyStress [threads] [rounds]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class ConcurrencyStress {
+
+    private static final int BODIES = 300;
+
+    private static final double SIZE = 800;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Random rand = new Random(0);
+        Body[] bodies = new Body[BODIES];
+        Pose[] poses = new Pose[BODIES];
+
+        for (int i = 0; i < BODIES; i++) {
+            bodies[i] = place(new Body(randomShape(rand)), rand);
+            bodies[i].prepare();
+            poses[i] = new Pose(rand.nextDouble() * SIZE,
+                    rand.nextDouble() * SIZE, rand.nextDouble() * 360, 1, 1);
+        }
+
+        // Answers found on this thread alone
+        int pairs = BODIES * (BODIES - 1) / 2;
+        int[] first = new int[pairs];
+        int[] second = new int[pairs];
+        boolean[] sat = new boolean[pairs];
+        boolean[] gjk = new boolean[pairs];
+        double[] depth = new double[pairs];
+        boolean[] snapshot = new boolean[pairs];
+        Manifold manifold = new Manifold();
+
+        for (int i = 0, k = 0; i < BODIES; i++) {
+            for (int j = i + 1; j < BODIES; j++, k++) {
+                first[k] = i;
+                second[k] = j;
+                sat[k] = SAT.collide(bodies[i], bodies[j]);
+                gjk[k] = GJK.collide(bodies[i], bodies[j]);
+                SAT.collideWithManifold(bodies[i], bodies[j], manifold);
+                depth[k] = manifold.getDepth();
+                snapshot[k] = SAT.collide(bodies[i], poses[i], bodies[j],
+                        poses[j]);
+            }
+        }
+
+        int[] worldPairs = stepWorld(new Random(1), rounds);
+
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> workers = new ArrayList<Thread>();
+
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            Thread worker = new Thread(() -> {
+                Manifold m = new Manifold();
+                Random order = new Random(seed);
+
+                for (int round = 0; round < rounds; round++) {
+                    // Start every thread somewhere else in the pair list
+                    int start = order.nextInt(pairs);
+
+                    for (int n = 0; n < pairs; n++) {
+                        int k = (start + n) % pairs;
+                        int i = first[k];
+                        int j = second[k];
+
+                        SAT.collideWithManifold(bodies[i], bodies[j], m);
+
+                        if (SAT.collide(bodies[i], bodies[j]) != sat[k]
+                                || GJK.collide(bodies[i], bodies[j]) != gjk[k]
+                                || m.getDepth() != depth[k]
+                                || SAT.collide(bodies[i], poses[i], bodies[j],
+                                        poses[j]) != snapshot[k]) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+
+                if (!Arrays.equals(stepWorld(new Random(1), rounds),
+                        worldPairs)) {
+                    mismatches.incrementAndGet();
+                }
+            });
+
+            workers.add(worker);
+            worker.start();
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%d threads, %d rounds of %d pairs, %.1f ms, "
+                + "%d mismatches%n", threads, rounds, pairs, elapsed / 1e6,
+                mismatches.get());
+
+        if (mismatches.get() != 0) {
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Steps a world of moving bodies owned by the calling thread, counting
+     * the colliding pairs of every step.
+     */
+    private static int[] stepWorld(Random rand, int steps) {
+        CollisionWorld world = new CollisionWorld();
+        Body[] bodies = new Body[BODIES / 3];
+
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = place(new Body(randomShape(rand)), rand);
+            world.add(bodies[i]);
+        }
+
+        int[] counts = new int[steps];
+        for (int step = 0; step < steps; step++) {
+            for (Body body : bodies) {
+                body.setX(body.getX() + rand.nextGaussian() * 5);
+                body.setRotation(body.getRotation() + rand.nextGaussian() * 5);
+            }
+
+            final int s = step;
+            world.step((a, b) -> counts[s]++);
+        }
+
+        return counts;
+    }
+
+    private static Body place(Body body, Random rand) {
+        body.setX(rand.nextDouble() * SIZE);
+        body.setY(rand.nextDouble() * SIZE);
+        body.setRotation(rand.nextDouble() * 360);
+        return body;
+    }
+
+    /*
+     * A regular polygon or a star, which is concave and gets decomposed.
+     */
+    private static Vector2d[] randomShape(Random rand) {
+        int points = 3 + rand.nextInt(6);
+        double outer = 20 + rand.nextDouble() * 40;
+        boolean star = rand.nextBoolean();
+        int n = star ? points * 2 : points;
+
+        Vector2d[] vertices = new Vector2d[n];
+        for (int i = 0; i < n; i++) {
+            double angle = Math.PI * 2 * i / n;
+            double radius = star && i % 2 == 1 ? outer / 2 : outer;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+}
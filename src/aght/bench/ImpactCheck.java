@@ -0,0 +1,304 @@
+package aght.bench;
+
+import java.util.Random;
+
+import aght.collision.AABB;
+import aght.collision.Body;
+import aght.collision.GJK;
+import aght.collision.Impact;
+import aght.collision.Pose;
+import aght.collision.TimeOfImpact;
+import aght.math.Vector2d;
+
+/**
+ * ImpactCheck.
+ * <p>
+ * Checks time of impact queries against sampling the motion: the swept
+ * bounds of a body that moves, turns and scales must hold every pose in
+ * between, no contact found by sampling may come before the reported time
+ * of impact, the reported normals must have unit length, also with a
+ * tolerance of 0, and boxes overlapping at the start must be reported at a
+ * point inside both. Exits with status 1 on any failure. Usage: ImpactCheck
+ * [motions]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class ImpactCheck {
+
+    /**
+     * Number of poses in between the ends of a motion that are sampled.
+     */
+    private static final int SAMPLES = 1000;
+
+    /**
+     * Distance by which sampled points may lie outside the swept bounds or
+     * the boxes, for rounding.
+     */
+    private static final double SLACK = 1e-9;
+
+    public static void main(String[] args) {
+        int motions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random rand = new Random(0);
+        int failures = 0;
+
+        int escaped = 0;
+        for (int i = 0; i < motions; i++) {
+            if (!sweepHolds(rand, i % 2 == 0)) {
+                escaped++;
+            }
+        }
+
+        System.out.printf("Swept bounds: %d sweeps, %d escaped%n", motions,
+                escaped);
+        failures += escaped;
+
+        int hits = 0;
+        int missed = 0;
+        Impact impact = new Impact();
+
+        for (int i = 0; i < motions; i++) {
+            Body a = new Body(shape(rand));
+            Body b = new Body(shape(rand));
+            Pose aStart = randomPose(rand, 400);
+            Pose aEnd = new Pose(rand.nextDouble() * 400,
+                    rand.nextDouble() * 400, rand.nextDouble() * 720 - 360,
+                    aStart.getScaleX(), aStart.getScaleY());
+            Pose bStart = randomPose(rand, 400);
+            Pose bEnd = randomPose(rand, 400);
+
+            boolean hit = TimeOfImpact.compute(a, aStart, aEnd, b, bStart,
+                    bEnd, impact);
+            if (hit) {
+                hits++;
+            }
+
+            double first = firstContact(a, aStart, aEnd, b, bStart, bEnd);
+            if (first >= 0 && (!hit || impact.getTime() > first + SLACK)) {
+                missed++;
+            }
+        }
+
+        System.out.printf("First contacts: %d motions, %d hits, %d missed%n",
+                motions, hits, missed);
+        failures += missed;
+
+        int normalHits = 0;
+        int badNormals = 0;
+
+        for (int i = 0; i < 10 * motions; i++) {
+            if (!approach(rand, impact)) {
+                continue;
+            }
+
+            normalHits++;
+            double length = Math.hypot(impact.getNormalX(),
+                    impact.getNormalY());
+            if (!(Math.abs(length - 1) < 1e-6)) {
+                badNormals++;
+            }
+        }
+
+        System.out.printf("Impact normals: %d hits, %d not unit length%n",
+                normalHits, badNormals);
+        failures += badNormals;
+
+        int overlaps = 0;
+        int outside = 0;
+
+        // Boxes at the same spot and moved along an axis or a diagonal, so
+        // GJK finds the origin on a segment
+        for (int step = -9; step <= 9; step++) {
+            for (int axis = 0; axis < 3; axis++) {
+                for (int flip = 0; flip < 2; flip++) {
+                    double width = flip == 0 ? 10 : 6;
+                    double dx = axis == 1 ? 0 : step * 0.5;
+                    double dy = axis == 0 ? 0 : step * 0.5;
+                    Body a = new Body(box(10, 10));
+                    Body b = new Body(box(width, 10));
+                    b.setX(dx);
+                    b.setY(dy);
+
+                    if (!TimeOfImpact.compute(a, b, impact)) {
+                        continue;
+                    }
+
+                    overlaps++;
+                    double x = impact.getPointX();
+                    double y = impact.getPointY();
+                    if (!inside(x, y, 0, 0, 10, 10)
+                            || !inside(x, y, dx, dy, width, 10)) {
+                        outside++;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("Overlap points: %d overlaps, %d outside%n",
+                overlaps, outside);
+        failures += outside;
+
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Sweeps a body, a thin rod or a regular polygon, to a random pose,
+     * turning and scaling it most of the time, and checks its vertices in
+     * every sampled pose stay inside the swept bounds.
+     */
+    private static boolean sweepHolds(Random rand, boolean rod) {
+        Vector2d[] vertices = rod ? box(100, 2)
+                : regular(5 + rand.nextDouble() * 40, 3 + rand.nextInt(8));
+
+        double x0 = rand.nextDouble() * 100;
+        double y0 = rand.nextDouble() * 100;
+        double rotation0 = rand.nextDouble() * 360;
+        double scaleX0 = 0.3 + rand.nextDouble() * 2;
+        double scaleY0 = 0.3 + rand.nextDouble() * 2;
+        double x1 = x0 + rand.nextGaussian() * 30;
+        double y1 = y0 + rand.nextGaussian() * 30;
+        double rotation1 = rotation0
+                + (rand.nextInt(3) == 0 ? 0 : rand.nextGaussian() * 120);
+        double scaleX1 = rand.nextInt(3) == 0 ? scaleX0
+                : 0.3 + rand.nextDouble() * 2;
+        double scaleY1 = rand.nextInt(3) == 0 ? scaleY0 : -scaleY0;
+
+        Body body = new Body(vertices);
+        body.setPose(new Pose(x0, y0, rotation0, scaleX0, scaleY0));
+        body.beginSweep();
+        body.setPose(new Pose(x1, y1, rotation1, scaleX1, scaleY1));
+        AABB swept = body.getAABB();
+
+        Body probe = new Body(vertices);
+        for (int k = 0; k <= SAMPLES; k++) {
+            double t = (double) k / SAMPLES;
+            probe.setPose(new Pose(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t,
+                    rotation0 + (rotation1 - rotation0) * t,
+                    scaleX0 + (scaleX1 - scaleX0) * t,
+                    scaleY0 + (scaleY1 - scaleY0) * t));
+
+            double[] world = probe.getWorldVertices();
+            for (int i = 0; i < world.length; i += 2) {
+                if (world[i] < swept.getMinX() - SLACK
+                        || world[i] > swept.getMaxX() + SLACK
+                        || world[i + 1] < swept.getMinY() - SLACK
+                        || world[i + 1] > swept.getMaxY() + SLACK) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Finds the first sampled time at which the bodies overlap, or -1.
+     */
+    private static double firstContact(Body a, Pose aStart, Pose aEnd,
+            Body b, Pose bStart, Pose bEnd) {
+
+        for (int k = 0; k <= SAMPLES; k++) {
+            double t = (double) k / SAMPLES;
+            a.setPose(lerp(aStart, aEnd, t));
+            b.setPose(lerp(bStart, bEnd, t));
+
+            if (GJK.collide(a, b)) {
+                return t;
+            }
+        }
+
+        return -1;
+    }
+
+    /*
+     * Moves a body from a random direction onto another at the origin,
+     * often along an axis and turning to a right angle or not at all, with
+     * the touching tolerance sometimes 0, where the closest points can meet.
+     */
+    private static boolean approach(Random rand, Impact impact) {
+        Body a = new Body(rand.nextBoolean() ? box(10, 10)
+                : regular(5 + rand.nextDouble() * 10, 3 + rand.nextInt(6)));
+        Body b = new Body(rand.nextBoolean() ? box(10, 10)
+                : regular(5 + rand.nextDouble() * 10, 3 + rand.nextInt(6)));
+
+        double rotation = rand.nextBoolean() ? 0 : rand.nextDouble() * 90;
+        double angle = rand.nextDouble() * Math.PI * 2;
+        int along = rand.nextInt(4);
+        double tolerance = rand.nextInt(3) == 0 ? 0
+                : rand.nextBoolean() ? 1e-15 : TimeOfImpact.DEFAULT_TOLERANCE;
+
+        Pose aStart = new Pose(0, 0, 0);
+        Pose aEnd = new Pose(0, 0, rand.nextInt(2) * rotation);
+        Pose bStart = new Pose(40 * Math.cos(angle), 40 * Math.sin(angle), 0);
+        Pose bEnd = new Pose(
+                along == 0 ? 10 : rand.nextDouble() * 20 - 10,
+                along == 1 ? 10 : rand.nextDouble() * 20 - 10, rotation);
+
+        return TimeOfImpact.compute(a, aStart, aEnd, b, bStart, bEnd,
+                tolerance, impact);
+    }
+
+    private static Pose lerp(Pose start, Pose end, double t) {
+        return new Pose(start.getX() + (end.getX() - start.getX()) * t,
+                start.getY() + (end.getY() - start.getY()) * t,
+                start.getRotation()
+                        + (end.getRotation() - start.getRotation()) * t,
+                start.getScaleX()
+                        + (end.getScaleX() - start.getScaleX()) * t,
+                start.getScaleY()
+                        + (end.getScaleY() - start.getScaleY()) * t);
+    }
+
+    private static Pose randomPose(Random rand, double size) {
+        return new Pose(rand.nextDouble() * size, rand.nextDouble() * size,
+                rand.nextDouble() * 360, 0.5 + rand.nextDouble(),
+                0.5 + rand.nextDouble());
+    }
+
+    private static boolean inside(double x, double y, double minX,
+            double minY, double width, double height) {
+        return x >= minX - SLACK && x <= minX + width + SLACK
+                && y >= minY - SLACK && y <= minY + height + SLACK;
+    }
+
+    private static Vector2d[] box(double width, double height) {
+        return new Vector2d[] { new Vector2d(0, 0), new Vector2d(width, 0),
+                new Vector2d(width, height), new Vector2d(0, height) };
+    }
+
+    /*
+     * A regular polygon, or half the time a star, which is concave and gets
+     * decomposed.
+     */
+    private static Vector2d[] shape(Random rand) {
+        int points = 3 + rand.nextInt(6);
+        double outer = 20 + rand.nextDouble() * 30;
+
+        if (rand.nextBoolean()) {
+            return regular(outer, points);
+        }
+
+        Vector2d[] vertices = new Vector2d[2 * points];
+        for (int i = 0; i < vertices.length; i++) {
+            double angle = Math.PI * i / points;
+            double radius = i % 2 == 1 ? outer / 2 : outer;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+
+    private static Vector2d[] regular(double radius, int sides) {
+        Vector2d[] vertices = new Vector2d[sides];
+        for (int i = 0; i < sides; i++) {
+            double angle = Math.PI * 2 * i / sides;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+}
@@ -0,0 +1,123 @@
+package aght.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import aght.math.Matrix;
+
+/**
+ * MatrixBenchmark.
+ * <p>
+ * Times multiplying square {@link Matrix} objects of 2x2 up to 1024x1024, on
+ * the calling thread and on the common pool, against the naive triple loop
+ * over 2D arrays that Matrix used before, which is kept here as the baseline.
+ * Smaller sizes are repeated so every measurement covers about the same
+ * number of multiplications. Usage: MatrixBenchmark [max baseline size]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class MatrixBenchmark {
+
+    private static final int MAX_SIZE = 1024;
+
+    /**
+     * Multiplications timed per measurement, about one 256x256 product.
+     */
+    private static final long WORK = 1L << 24;
+
+    /**
+     * Keeps the results alive so the JIT cannot drop the work.
+     */
+    private static double sink;
+
+    public static void main(String[] args) {
+        int baselineMax = args.length > 0 ? Integer.parseInt(args[0])
+                : MAX_SIZE;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        System.out.printf("%d threads in the common pool%n",
+                pool.getParallelism());
+
+        for (int n = 2; n <= MAX_SIZE; n *= 2) {
+            Random rand = new Random(n);
+            double[][] a = random(n, rand);
+            double[][] b = random(n, rand);
+            Matrix m1 = new Matrix(a);
+            Matrix m2 = new Matrix(b);
+            int reps = (int) Math.max(1, WORK / ((long) n * n * n));
+
+            double blocked = time(reps, () -> {
+                sink += Matrix.mult(m1, m2).get(0, 0);
+            });
+            double parallel = time(reps, () -> {
+                sink += Matrix.mult(m1, m2, pool).get(0, 0);
+            });
+
+            System.out.printf("%4dx%-4d  blocked %12.4f ms, "
+                    + "parallel %12.4f ms", n, n, blocked, parallel);
+
+            if (n <= baselineMax) {
+                double naive = time(reps, () -> {
+                    sink += baseline(a, b)[0][0];
+                });
+                System.out.printf(", baseline %12.4f ms, %5.1fx faster",
+                        naive, naive / Math.min(blocked, parallel));
+            }
+
+            System.out.println();
+        }
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /*
+     * Runs the work twice to warm up, then returns the average time of reps
+     * more runs in milliseconds.
+     */
+    private static double time(int reps, Runnable work) {
+        for (int i = 0; i < Math.min(reps, 2) * 2; i++) {
+            work.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            work.run();
+        }
+
+        return (System.nanoTime() - start) / 1e6 / reps;
+    }
+
+    private static double[][] random(int n, Random rand) {
+        double[][] m = new double[n][n];
+
+        for (double[] row : m) {
+            for (int j = 0; j < n; j++) {
+                row[j] = rand.nextGaussian();
+            }
+        }
+
+        return m;
+    }
+
+    /*
+     * The previous multiplication, walking down the columns of b.
+     */
+    private static double[][] baseline(double[][] a, double[][] b) {
+        int rows = a.length;
+        int cols = b[0].length;
+        double[][] product = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                for (int n = 0; n < b.length; n++) {
+                    product[i][j] += a[i][n] * b[n][j];
+                }
+            }
+        }
+
+        return product;
+    }
+}
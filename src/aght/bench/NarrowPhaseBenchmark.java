@@ -0,0 +1,92 @@
+package aght.bench;
+
+import java.util.Random;
+
+import aght.collision.Body;
+import aght.collision.NarrowPhase;
+import aght.math.Vector2d;
+
+/**
+ * NarrowPhaseBenchmark.
+ * <p>
+ * Compares the narrow phases on pairs of regular polygons with more and more
+ * vertices, about half of them colliding. Usage: NarrowPhaseBenchmark [pairs]
+ * [rounds]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class NarrowPhaseBenchmark {
+
+    private static final double RADIUS = 50;
+
+    private static final int[] SIDES = { 4, 8, 16, 64, 256, 1024 };
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        for (int sides : SIDES) {
+            Body[] a = new Body[n];
+            Body[] b = new Body[n];
+            Random rand = new Random(0);
+
+            for (int i = 0; i < n; i++) {
+                a[i] = place(new Body(regularPolygon(RADIUS, sides)), rand);
+                b[i] = place(new Body(regularPolygon(RADIUS, sides)), rand);
+            }
+
+            for (NarrowPhase narrowPhase : NarrowPhase.values()) {
+                run(narrowPhase, sides, a, b, rounds);
+            }
+        }
+    }
+
+    private static void run(NarrowPhase narrowPhase, int sides, Body[] a,
+            Body[] b, int rounds) {
+
+        long time = 0;
+        int hits = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            hits = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < a.length; i++) {
+                if (narrowPhase.collide(a[i], b[i])) {
+                    hits++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // First half of the rounds is warm up
+            if (round >= rounds / 2) {
+                time += elapsed;
+            }
+        }
+
+        System.out.printf("%-4s %5d sides %10.1f ns/pair, %d hits%n",
+                narrowPhase, sides,
+                (double) time / a.length / (rounds - rounds / 2), hits);
+    }
+
+    private static Body place(Body body, Random rand) {
+        body.setX(rand.nextDouble() * RADIUS * 3);
+        body.setY(rand.nextDouble() * RADIUS * 3);
+        body.setRotation(rand.nextDouble() * 360);
+        body.getWorldPieces();
+        return body;
+    }
+
+    private static Vector2d[] regularPolygon(double radius, int sides) {
+        Vector2d[] vertices = new Vector2d[sides];
+
+        for (int i = 0; i < sides; i++) {
+            double angle = Math.PI * 2 * i / sides;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+}
@@ -0,0 +1,253 @@
+package aght.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import aght.collision.Body;
+import aght.collision.GJK;
+import aght.collision.SAT;
+import aght.math.Vector2d;
+
+/**
+ * NarrowPhaseCheck.
+ * <p>
+ * Compares the narrow phase with brute force on shapes that have tripped it
+ * up before: convex polygons with many vertices along straight sides at any
+ * angle, which SAT tests through the O(log n) support search, in either
+ * winding and with mirroring scales, and boxes overlapping deeply, axis
+ * aligned or turned together, which put the origin on or next to the line
+ * through a GJK segment.
+ * Placements where the bodies only just touch are skipped. Exits with status
+ * 1 on any mismatch. Usage: NarrowPhaseCheck [placements]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class NarrowPhaseCheck {
+
+    /**
+     * Overlaps smaller than this along the closest axis count as touching.
+     */
+    private static final double TOUCHING = 1e-7;
+
+    /**
+     * Number of random angles the overlapping boxes are turned to.
+     */
+    private static final int BOX_TURNS = 200;
+
+    public static void main(String[] args) {
+        int placements = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random rand = new Random(0);
+        int mismatches = 0;
+        int hits = 0;
+
+        for (int i = 0; i < placements; i++) {
+            Body a = place(new Body(sidedPolygon(rand)), rand);
+            Body b = place(new Body(sidedPolygon(rand)), rand);
+
+            double overlap = overlap(a.getWorldVertices(),
+                    b.getWorldVertices());
+            if (Math.abs(overlap) < TOUCHING) {
+                continue;
+            }
+
+            if (overlap > 0) {
+                hits++;
+            }
+            if (SAT.collide(a, b) != overlap > 0) {
+                mismatches++;
+            }
+        }
+
+        System.out.printf("SAT on sided polygons: %d placements, %d hits, "
+                + "%d mismatches%n", placements, hits, mismatches);
+
+        int boxMismatches = 0;
+        int boxPlacements = 0;
+
+        // Boxes at the same spot and moved along one of their axes or a
+        // diagonal by up to most of their width, both ways round, first
+        // axis aligned and then turned together, where rounding puts the
+        // origin just off the line through a GJK segment
+        for (int turn = 0; turn <= BOX_TURNS; turn++) {
+            double angle = turn == 0 ? 0 : rand.nextInt(3600) / 10.0;
+            double cos = Math.cos(Math.toRadians(angle));
+            double sin = Math.sin(Math.toRadians(angle));
+
+            for (int step = -9; step <= 9; step++) {
+                for (int axis = 0; axis < 3; axis++) {
+                    double offset = step * 0.5;
+                    double dx = axis == 1 ? 0 : offset;
+                    double dy = axis == 0 ? 0 : offset;
+
+                    for (int flip = 0; flip < 2; flip++) {
+                        double width = flip == 0 ? 10 : 6;
+                        Body a = new Body(box(10, 10));
+                        Body b = new Body(box(width, 10));
+                        a.setRotation(angle);
+                        b.setRotation(angle);
+
+                        // Both turn about the centre of their bounds, so
+                        // move b to where a turned would carry its offset
+                        double x = dx + width / 2 - 5;
+                        b.setX(5 - width / 2 + cos * x - sin * dy);
+                        b.setY(sin * x + cos * dy);
+                        boxPlacements++;
+
+                        if (!GJK.collide(a, b) || !GJK.collide(b, a)
+                                || !SAT.collide(a, b)) {
+                            boxMismatches++;
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.printf("GJK on overlapping boxes: %d placements, "
+                + "%d mismatches%n", boxPlacements, boxMismatches);
+        mismatches += boxMismatches;
+
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Body place(Body body, Random rand) {
+        body.setX(rand.nextDouble() * 60);
+        body.setY(rand.nextDouble() * 60);
+
+        // Right angles keep sides of the two bodies parallel
+        body.setRotation(rand.nextBoolean() ? 90 * rand.nextInt(4)
+                : rand.nextDouble() * 360);
+        body.setScale((rand.nextBoolean() ? -1 : 1)
+                * (0.5 + rand.nextDouble()),
+                (rand.nextBoolean() ? -1 : 1) * (0.5 + rand.nextDouble()));
+        return body;
+    }
+
+    private static Vector2d[] box(double width, double height) {
+        return new Vector2d[] { new Vector2d(0, 0), new Vector2d(width, 0),
+                new Vector2d(width, height), new Vector2d(0, height) };
+    }
+
+    /*
+     * A convex polygon with extra vertices along its sides, either an axis
+     * aligned square or a regular polygon turned to any angle, so collinear
+     * runs also lie at angles where rounding moves their vertices off the
+     * line. Vertices turning the wrong way by rounding are dropped, so
+     * the body is still taken as convex. It starts anywhere along the
+     * outline so runs also wrap around the first vertex, and is wound either
+     * way.
+     */
+    private static Vector2d[] sidedPolygon(Random rand) {
+        boolean square = rand.nextBoolean();
+        int sides = square ? 4 : 3 + rand.nextInt(6);
+        int perSide = (15 + sides) / sides + rand.nextInt(4);
+        double radius = 10 + rand.nextDouble() * 20;
+        double turn = square ? Math.PI / 4 : rand.nextDouble() * Math.PI * 2;
+
+        double[] corners = new double[2 * sides];
+        for (int k = 0; k < sides; k++) {
+            double angle = turn + Math.PI * 2 * k / sides;
+            corners[2 * k] = square ? Math.signum(Math.cos(angle)) * radius
+                    : radius * Math.cos(angle);
+            corners[2 * k + 1] = square
+                    ? Math.signum(Math.sin(angle)) * radius
+                    : radius * Math.sin(angle);
+        }
+
+        List<Vector2d> vertices = new ArrayList<Vector2d>();
+        for (int k = 0; k < sides; k++) {
+            double x = corners[2 * k];
+            double y = corners[2 * k + 1];
+            double dx = corners[(2 * k + 2) % corners.length] - x;
+            double dy = corners[(2 * k + 3) % corners.length] - y;
+
+            for (int t = 0; t < perSide; t++) {
+                vertices.add(new Vector2d(x + dx * t / perSide,
+                        y + dy * t / perSide));
+            }
+        }
+
+        boolean clockwise = rand.nextBoolean();
+        if (clockwise) {
+            Collections.reverse(vertices);
+        }
+
+        // Body takes a polygon as convex when every vertex turns the same
+        // way, counting collinear vertices as clockwise turns, and rounding
+        // can turn collinear vertices slightly either way
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+
+            for (int i = 0; i < vertices.size(); i++) {
+                int n = vertices.size();
+                double cross = Vector2d.cross3(
+                        vertices.get((i + n - 1) % n), vertices.get(i),
+                        vertices.get((i + 1) % n));
+
+                if (clockwise ? cross > 0 : cross <= 0) {
+                    vertices.remove(i--);
+                    removed = true;
+                }
+            }
+        }
+
+        Collections.rotate(vertices, rand.nextInt(vertices.size()));
+        return vertices.toArray(new Vector2d[0]);
+    }
+
+    /*
+     * Brute force SAT over every edge of both convex outlines, returning the
+     * smallest overlap of their projections, negative when an axis separates
+     * them.
+     */
+    private static double overlap(double[] a, double[] b) {
+        return Math.min(overlapAlongEdges(a, a, b),
+                overlapAlongEdges(b, a, b));
+    }
+
+    private static double overlapAlongEdges(double[] edges, double[] a,
+            double[] b) {
+        double smallest = Double.POSITIVE_INFINITY;
+        int n = edges.length / 2;
+
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double axisX = edges[2 * i + 1] - edges[2 * j + 1];
+            double axisY = edges[2 * j] - edges[2 * i];
+            double length = Math.sqrt(axisX * axisX + axisY * axisY);
+
+            if (length == 0) {
+                continue;
+            }
+
+            axisX /= length;
+            axisY /= length;
+
+            double minA = Double.POSITIVE_INFINITY;
+            double maxA = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < a.length; k += 2) {
+                double d = a[k] * axisX + a[k + 1] * axisY;
+                minA = Math.min(minA, d);
+                maxA = Math.max(maxA, d);
+            }
+
+            double minB = Double.POSITIVE_INFINITY;
+            double maxB = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < b.length; k += 2) {
+                double d = b[k] * axisX + b[k + 1] * axisY;
+                minB = Math.min(minB, d);
+                maxB = Math.max(maxB, d);
+            }
+
+            smallest = Math.min(smallest,
+                    Math.min(maxA, maxB) - Math.max(minA, minB));
+        }
+
+        return smallest;
+    }
+}
@@ -0,0 +1,139 @@
+package aght.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import aght.collision.Body;
+import aght.collision.Pose;
+import aght.collision.SAT;
+import aght.math.Vector2d;
+
+/**
+ * SnapshotCheck.
+ * <p>
+ * Checks that colliding bodies in pose snapshots gives the same answers as
+ * moving the bodies to those poses first, for convex and concave bodies with
+ * any rotation and with mirroring scales. The snapshot queries are then run
+ * again on many threads at once, on bodies that were only constructed and
+ * never prepared or moved, which they must only read. Exits with status 1
+ * on any mismatch. Usage: SnapshotCheck [pairs] [threads]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class SnapshotCheck {
+
+    private static final double SIZE = 100;
+
+    public static void main(String[] args) throws InterruptedException {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        Random rand = new Random(0);
+        Body[] first = new Body[pairs];
+        Body[] second = new Body[pairs];
+        Pose[] firstPoses = new Pose[pairs];
+        Pose[] secondPoses = new Pose[pairs];
+        boolean[] moved = new boolean[pairs];
+        int mismatches = 0;
+        int hits = 0;
+
+        for (int i = 0; i < pairs; i++) {
+            Vector2d[] a = shape(rand);
+            Vector2d[] b = shape(rand);
+            first[i] = new Body(a);
+            second[i] = new Body(b);
+            firstPoses[i] = randomPose(rand);
+            secondPoses[i] = randomPose(rand);
+
+            // Separate bodies are moved, so the snapshot bodies stay as built
+            Body movedA = new Body(a);
+            Body movedB = new Body(b);
+            movedA.setPose(firstPoses[i]);
+            movedB.setPose(secondPoses[i]);
+            moved[i] = SAT.collide(movedA, movedB);
+
+            if (moved[i]) {
+                hits++;
+            }
+            if (SAT.collide(first[i], firstPoses[i], second[i],
+                    secondPoses[i]) != moved[i]) {
+                mismatches++;
+            }
+        }
+
+        System.out.printf("Snapshots: %d pairs, %d hits, %d mismatches%n",
+                pairs, hits, mismatches);
+
+        // Fresh bodies, so every thread meets them in the state a
+        // constructor leaves them in
+        for (int i = 0; i < pairs; i++) {
+            first[i] = new Body(first[i].getLocalVertices());
+            second[i] = new Body(second[i].getLocalVertices());
+        }
+
+        AtomicInteger shared = new AtomicInteger();
+        List<Thread> workers = new ArrayList<Thread>();
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * pairs / threads;
+            Thread worker = new Thread(() -> {
+                for (int n = 0; n < pairs; n++) {
+                    int i = (offset + n) % pairs;
+
+                    if (SAT.collide(first[i], firstPoses[i], second[i],
+                            secondPoses[i]) != moved[i]) {
+                        shared.incrementAndGet();
+                    }
+                }
+            });
+
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        System.out.printf("Shared snapshots: %d threads, %d mismatches%n",
+                threads, shared.get());
+        mismatches += shared.get();
+
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Pose randomPose(Random rand) {
+        return new Pose(rand.nextDouble() * SIZE, rand.nextDouble() * SIZE,
+                rand.nextDouble() * 360,
+                (rand.nextBoolean() ? -1 : 1) * (0.5 + rand.nextDouble()),
+                (rand.nextBoolean() ? -1 : 1) * (0.5 + rand.nextDouble()));
+    }
+
+    /*
+     * A regular polygon or a star, which is concave and gets decomposed,
+     * sometimes with enough points for a tree over its pieces.
+     */
+    private static Vector2d[] shape(Random rand) {
+        int points = rand.nextInt(4) == 0 ? 10 + rand.nextInt(10)
+                : 3 + rand.nextInt(6);
+        double outer = 10 + rand.nextDouble() * 30;
+        boolean star = rand.nextBoolean();
+        int n = star ? points * 2 : points;
+
+        Vector2d[] vertices = new Vector2d[n];
+        for (int i = 0; i < n; i++) {
+            double angle = Math.PI * 2 * i / n;
+            double radius = star && i % 2 == 1 ? outer / 2 : outer;
+            vertices[i] = new Vector2d(radius * Math.cos(angle),
+                    radius * Math.sin(angle));
+        }
+
+        return vertices;
+    }
+}
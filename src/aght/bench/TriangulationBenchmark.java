@@ -0,0 +1,158 @@
+package aght.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import aght.math.Vector2d;
+import aght.shape.decomposition.EarClipper;
+import aght.shape.decomposition.PolyDecompose;
+
+/**
+ * TriangulationBenchmark.
+ * <p>
+ * Times {@link EarClipper} on random outlines of 1k to 100k vertices, like
+ * imported map outlines, against the list based ear clipping it replaced,
+ * which is kept here as the baseline. The baseline is quadratic or worse, so
+ * it only runs up to a given number of vertices. Usage:
+ * TriangulationBenchmark [rounds] [max baseline vertices]
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class TriangulationBenchmark {
+
+    private static final int[] SIZES = { 1000, 3000, 10000, 30000, 100000 };
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int baselineMax = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        for (int n : SIZES) {
+            double[] xy = outline(n, new Random(n));
+
+            long time = 0;
+            int triangles = 0;
+
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                triangles = EarClipper.triangulate(xy).length / 3;
+                long elapsed = System.nanoTime() - start;
+
+                // First half of the rounds is warm up
+                if (round >= rounds / 2) {
+                    time += elapsed;
+                }
+            }
+
+            System.out.printf("%6d vertices  ear clipper %10.2f ms, "
+                    + "%d triangles%n", n,
+                    time / 1e6 / (rounds - rounds / 2), triangles);
+
+            if (n > baselineMax) {
+                continue;
+            }
+
+            Vector2d[] vertices = new Vector2d[n];
+            for (int i = 0; i < n; i++) {
+                vertices[i] = new Vector2d(xy[2 * i], xy[2 * i + 1]);
+            }
+
+            long start = System.nanoTime();
+            triangles = baseline(vertices);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%6d vertices  baseline    %10.2f ms, "
+                    + "%d triangles%n", n, elapsed / 1e6, triangles);
+        }
+    }
+
+    /*
+     * A simple polygon winding counter clockwise around the origin, its
+     * distance from the origin drifting randomly from vertex to vertex like a
+     * coastline.
+     */
+    private static double[] outline(int n, Random rand) {
+        double[] xy = new double[2 * n];
+        double radius = 1000;
+
+        for (int i = 0; i < n; i++) {
+            double angle = Math.PI * 2 * i / n;
+            radius = Math.max(500, Math.min(1500,
+                    radius + rand.nextGaussian() * 2));
+            xy[2 * i] = radius * Math.cos(angle);
+            xy[2 * i + 1] = radius * Math.sin(angle);
+        }
+
+        return xy;
+    }
+
+    /*
+     * The previous triangulation: ear clipping over a list of indices,
+     * copying the remaining vertices for every candidate ear. Returns the
+     * number of triangles.
+     */
+    private static int baseline(Vector2d[] v) {
+        List<Integer> vertices = new ArrayList<Integer>();
+        for (int i = 0; i < v.length; i++) {
+            vertices.add(i);
+        }
+
+        int triangles = 0;
+        boolean isCreated = true;
+
+        while (isCreated) {
+            isCreated = false;
+
+            for (int i = 0; i < vertices.size(); i++) {
+                int prevIndex = i - 1 == -1 ? vertices.size() - 1 : i - 1;
+                int nextIndex = i + 1 == vertices.size() ? 0 : i + 1;
+
+                Vector2d prev = v[vertices.get(prevIndex)];
+                Vector2d curr = v[vertices.get(i)];
+                Vector2d next = v[vertices.get(nextIndex)];
+
+                if (Vector2d.cross(Vector2d.sub(prev, curr),
+                        Vector2d.sub(next, curr)) >= 0) {
+                    continue;
+                }
+
+                Vector2d[] remaining = new Vector2d[vertices.size()];
+                for (int k = 0; k < remaining.length; k++) {
+                    remaining[k] = v[vertices.get(k)];
+                }
+
+                if (blocked(prev, curr, next, remaining, prevIndex, i,
+                        nextIndex)) {
+                    continue;
+                }
+
+                triangles++;
+                vertices.remove(i);
+                isCreated = true;
+            }
+        }
+
+        return triangles;
+    }
+
+    /*
+     * Stops at the first vertex that is not part of the ear, like the
+     * previous version did.
+     */
+    private static boolean blocked(Vector2d a, Vector2d b, Vector2d c,
+            Vector2d[] remaining, int skipA, int skipB, int skipC) {
+
+        for (int i = 0; i < remaining.length; i++) {
+            if (i == skipA || i == skipB || i == skipC) {
+                continue;
+            }
+
+            Vector2d p = remaining[i];
+            return PolyDecompose.triPoint(a.x, a.y, b.x, b.y, c.x, c.y, p.x,
+                    p.y);
+        }
+
+        return false;
+    }
+}
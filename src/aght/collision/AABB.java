@@ -15,6 +15,20 @@ public class AABB {
     double maxX;
     double maxY;
 
+    /**
+     * Creates an empty box, which intersects nothing until it is set.
+     */
+    public AABB() {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    public AABB(double minX, double minY, double maxX, double maxY) {
+        set(minX, minY, maxX, maxY);
+    }
+
     public AABB(Vector2d[] vertices) {
         
         minX = Double.POSITIVE_INFINITY;
@@ -32,8 +46,64 @@ public class AABB {
         }
     }
 
+    public void set(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Sets this box to the bounds of a set of vertices.
+     *
+     * @param vertices
+     *            the vertices, interleaved as x0, y0, x1, y1, ...
+     */
+    public void set(double[] vertices) {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < vertices.length; i += 2) {
+            double x = vertices[i];
+            double y = vertices[i + 1];
+
+            if (x > maxX) maxX = x;
+            if (x < minX) minX = x;
+            if (y > maxY) maxY = y;
+            if (y < minY) minY = y;
+        }
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean contains(double x, double y) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY;
+    }
+
     public boolean intersects(AABB b) {
         return (this.minX <= b.maxX && this.maxX >= b.minX &&
                 this.maxY >= b.minY && this.minY <= b.maxY);
     }
+
+    public boolean intersects(double minX, double minY, double maxX,
+            double maxY) {
+        return (this.minX <= maxX && this.maxX >= minX &&
+                this.maxY >= minY && this.minY <= maxY);
+    }
 }
@@ -0,0 +1,340 @@
+package aght.collision;
+
+import java.util.BitSet;
+
+/**
+ * BatchSAT.
+ * <p>
+ * Separating axis tests over a whole batch of pairs of bodies packed in a
+ * {@link BodyBuffer}. Pairs are given as body indices, pairs[2 * k] and
+ * pairs[2 * k + 1], and the result of pair k is written to index k of the
+ * output. The tests only walk the flat vertex arrays of the buffer, and
+ * bodies or polygons whose bounds do not overlap are rejected before any
+ * projection.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class BatchSAT {
+
+    /**
+     * Checks a batch of pairs.
+     *
+     * @param bodies
+     *            the bodies
+     * @param pairs
+     *            the body indices of every pair, two per pair
+     * @param pairCount
+     *            the number of pairs
+     * @param result
+     *            receives true at the index of every colliding pair
+     * @return the number of colliding pairs
+     */
+    public static int collide(BodyBuffer bodies, int[] pairs, int pairCount,
+            boolean[] result) {
+
+        return collide(bodies, pairs, 0, pairCount, result);
+    }
+
+    /**
+     * Checks a batch of pairs, setting the bit of every colliding pair and
+     * clearing the others.
+     *
+     * @param bodies
+     *            the bodies
+     * @param pairs
+     *            the body indices of every pair, two per pair
+     * @param pairCount
+     *            the number of pairs
+     * @param result
+     *            receives the bit of every colliding pair
+     * @return the number of colliding pairs
+     */
+    public static int collide(BodyBuffer bodies, int[] pairs, int pairCount,
+            BitSet result) {
+
+        int hits = 0;
+
+        for (int k = 0; k < pairCount; k++) {
+            boolean collide = collide(bodies, pairs[2 * k],
+                    pairs[2 * k + 1]);
+            result.set(k, collide);
+
+            if (collide) {
+                hits++;
+            }
+        }
+
+        return hits;
+    }
+
+    /**
+     * Checks a batch of pairs, and finds the contact manifold of every
+     * colliding pair like {@link SAT#collideWithManifold(Body, Body, Manifold)}.
+     *
+     * @param bodies
+     *            the bodies
+     * @param pairs
+     *            the body indices of every pair, two per pair
+     * @param pairCount
+     *            the number of pairs
+     * @param result
+     *            receives true at the index of every colliding pair
+     * @param manifolds
+     *            receives the manifold of every pair
+     * @return the number of colliding pairs
+     */
+    public static int collideWithManifolds(BodyBuffer bodies, int[] pairs,
+            int pairCount, boolean[] result, ManifoldBuffer manifolds) {
+
+        return collideWithManifolds(bodies, pairs, 0, pairCount, result,
+                manifolds);
+    }
+
+    static int collide(BodyBuffer bodies, int[] pairs, int from, int to,
+            boolean[] result) {
+
+        int hits = 0;
+
+        for (int k = from; k < to; k++) {
+            result[k] = collide(bodies, pairs[2 * k], pairs[2 * k + 1]);
+
+            if (result[k]) {
+                hits++;
+            }
+        }
+
+        return hits;
+    }
+
+    static int collideWithManifolds(BodyBuffer bodies, int[] pairs, int from,
+            int to, boolean[] result, ManifoldBuffer manifolds) {
+
+        manifolds.ensureCapacity(to);
+
+        int hits = 0;
+        Manifold m = manifolds.scratch;
+
+        for (int k = from; k < to; k++) {
+            result[k] = collideWithManifold(bodies, pairs[2 * k],
+                    pairs[2 * k + 1], manifolds);
+            manifolds.set(k, m);
+
+            if (result[k]) {
+                hits++;
+            }
+        }
+
+        return hits;
+    }
+
+    static boolean collide(BodyBuffer buf, int a, int b) {
+        if (!bodiesOverlap(buf, a, b)) {
+            return false;
+        }
+
+        for (int pa = buf.firstPolygon[a], aEnd = pa + buf.bodyPolygons[a];
+                pa < aEnd; pa++) {
+            for (int pb = buf.firstPolygon[b], bEnd = pb + buf.bodyPolygons[b];
+                    pb < bEnd; pb++) {
+
+                if (polygonsOverlap(buf, pa, pb)
+                        && polygons(buf.x, buf.y, buf.offset[pa], buf.count[pa],
+                                buf.offset[pb], buf.count[pb])) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Fills the scratch manifold of the buffer with the manifold of a pair.
+     */
+    private static boolean collideWithManifold(BodyBuffer buf, int a, int b,
+            ManifoldBuffer manifolds) {
+
+        Manifold m = manifolds.scratch;
+        m.clear();
+
+        if (!bodiesOverlap(buf, a, b)) {
+            return false;
+        }
+
+        for (int i = 0; i < buf.bodyPolygons[a]; i++) {
+            for (int j = 0; j < buf.bodyPolygons[b]; j++) {
+                int pa = buf.firstPolygon[a] + i;
+                int pb = buf.firstPolygon[b] + j;
+
+                if (!polygonsOverlap(buf, pa, pb)
+                        || !penetration(buf.x, buf.y, buf.offset[pa],
+                                buf.count[pa], buf.offset[pb], buf.count[pb],
+                                m.pair)) {
+                    continue;
+                }
+
+                double normalX = m.pair[0];
+                double normalY = m.pair[1];
+                double depth = m.pair[2];
+
+                if (!m.colliding || depth > m.depth) {
+                    m.set(normalX, normalY, depth);
+                }
+
+                double[] aVertices = gather(buf, pa,
+                        manifolds.gatherA(buf.count[pa]));
+                double[] bVertices = gather(buf, pb,
+                        manifolds.gatherB(buf.count[pb]));
+
+                Clipping.clip(aVertices, bVertices, normalX, normalY, depth, i,
+                        j, m);
+            }
+        }
+
+        m.reduce();
+
+        return m.colliding;
+    }
+
+    private static boolean bodiesOverlap(BodyBuffer buf, int a, int b) {
+        return buf.bodyMinX[a] <= buf.bodyMaxX[b]
+                && buf.bodyMaxX[a] >= buf.bodyMinX[b]
+                && buf.bodyMinY[a] <= buf.bodyMaxY[b]
+                && buf.bodyMaxY[a] >= buf.bodyMinY[b];
+    }
+
+    private static boolean polygonsOverlap(BodyBuffer buf, int a, int b) {
+        return buf.polygonMinX[a] <= buf.polygonMaxX[b]
+                && buf.polygonMaxX[a] >= buf.polygonMinX[b]
+                && buf.polygonMinY[a] <= buf.polygonMaxY[b]
+                && buf.polygonMaxY[a] >= buf.polygonMinY[b];
+    }
+
+    /*
+     * Checks two convex polygons stored at the given ranges of the vertex
+     * arrays.
+     */
+    private static boolean polygons(double[] x, double[] y, int aOffset,
+            int aCount, int bOffset, int bCount) {
+
+        for (int pass = 0; pass < 2; pass++) {
+            int offset = pass == 0 ? aOffset : bOffset;
+            int end = offset + (pass == 0 ? aCount : bCount);
+
+            for (int i = offset, j = end - 1; i < end; j = i, i++) {
+                double axisX = y[i] - y[j];
+                double axisY = x[j] - x[i];
+
+                if (separated(x, y, aOffset, aCount, bOffset, bCount, axisX,
+                        axisY)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean separated(double[] x, double[] y, int aOffset,
+            int aCount, int bOffset, int bCount, double axisX, double axisY) {
+
+        double minA = Double.POSITIVE_INFINITY;
+        double maxA = Double.NEGATIVE_INFINITY;
+        for (int i = aOffset, end = aOffset + aCount; i < end; i++) {
+            double dot = axisX * x[i] + axisY * y[i];
+            minA = Math.min(minA, dot);
+            maxA = Math.max(maxA, dot);
+        }
+
+        double minB = Double.POSITIVE_INFINITY;
+        double maxB = Double.NEGATIVE_INFINITY;
+        for (int i = bOffset, end = bOffset + bCount; i < end; i++) {
+            double dot = axisX * x[i] + axisY * y[i];
+            minB = Math.min(minB, dot);
+            maxB = Math.max(maxB, dot);
+        }
+
+        return maxA < minB || maxB < minA;
+    }
+
+    /*
+     * Finds the axis of least overlap of two convex polygons, like
+     * SAT.penetration but over the packed vertex arrays.
+     */
+    private static boolean penetration(double[] x, double[] y, int aOffset,
+            int aCount, int bOffset, int bCount, double[] result) {
+
+        double depth = Double.POSITIVE_INFINITY;
+        double normalX = 0;
+        double normalY = 0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            int offset = pass == 0 ? aOffset : bOffset;
+            int end = offset + (pass == 0 ? aCount : bCount);
+
+            for (int i = offset, j = end - 1; i < end; j = i, i++) {
+                double axisX = y[i] - y[j];
+                double axisY = x[j] - x[i];
+
+                double mag = Math.sqrt(axisX * axisX + axisY * axisY);
+                if (mag == 0) {
+                    continue;
+                }
+                axisX /= mag;
+                axisY /= mag;
+
+                double minA = Double.POSITIVE_INFINITY;
+                double maxA = Double.NEGATIVE_INFINITY;
+                for (int k = aOffset, kEnd = aOffset + aCount; k < kEnd; k++) {
+                    double dot = axisX * x[k] + axisY * y[k];
+                    minA = Math.min(minA, dot);
+                    maxA = Math.max(maxA, dot);
+                }
+
+                double minB = Double.POSITIVE_INFINITY;
+                double maxB = Double.NEGATIVE_INFINITY;
+                for (int k = bOffset, kEnd = bOffset + bCount; k < kEnd; k++) {
+                    double dot = axisX * x[k] + axisY * y[k];
+                    minB = Math.min(minB, dot);
+                    maxB = Math.max(maxB, dot);
+                }
+
+                if (maxA < minB || maxB < minA) {
+                    return false;
+                }
+
+                // Distance to push b along the axis, or against it
+                double forward = maxA - minB;
+                double backward = maxB - minA;
+
+                if (forward < depth) {
+                    depth = forward;
+                    normalX = axisX;
+                    normalY = axisY;
+                }
+
+                if (backward < depth) {
+                    depth = backward;
+                    normalX = -axisX;
+                    normalY = -axisY;
+                }
+            }
+        }
+
+        result[0] = normalX;
+        result[1] = normalY;
+        result[2] = depth;
+
+        return true;
+    }
+
+    private static double[] gather(BodyBuffer buf, int p, double[] dst) {
+        for (int i = 0, k = buf.offset[p]; i < buf.count[p]; i++, k++) {
+            dst[2 * i] = buf.x[k];
+            dst[2 * i + 1] = buf.y[k];
+        }
+
+        return dst;
+    }
+}
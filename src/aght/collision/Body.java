@@ -0,0 +1,968 @@
+package aght.collision;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import aght.math.Transform2d;
+import aght.math.Vector2d;
+import aght.shape.decomposition.PolyDecompose;
+
+/**
+ * Body.
+ * <p>
+ * A collision body in plain Java, holding its local space vertices together
+ * with its own position, rotation and scale. It does not depend on JavaFX, so
+ * bodies can be created and collided on any thread without a running toolkit.
+ * <p>
+ * The pose follows the same conventions as a JavaFX node: the body is moved by
+ * its offset plus its position, and rotated (in degrees) and scaled about the
+ * center of the bounds of its local vertices.
+ * <p>
+ * Thread safety: a body is not synchronized, and its world buffers are
+ * refreshed lazily by the first query after a change. It can be used by one
+ * thread at a time, or shared read only: once {@link #prepare()} has been
+ * called, any number of threads may query it at once as long as none of them
+ * changes it. The pieces are built as soon as the vertices or the
+ * decomposition mode are set, so queries given a {@link Pose} instead of
+ * using the pose of the body, like
+ * {@link SAT#collide(Body, Pose, Body, Pose)}, only read the body and need
+ * no call to {@link #prepare()}.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class Body {
+
+    private static final PolyDecompose decomposer = new PolyDecompose();
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    /*
+     * Largest sine of the angle between two edges still taken as collinear,
+     * well above rounding but far below any turn of a real polygon.
+     */
+    private static final double COLLINEAR_TOLERANCE = 1e-9;
+
+    /*
+     * Per thread transform for moving pieces to a pose other than the
+     * current one, which time of impact queries do on every iteration.
+     */
+    private static final ThreadLocal<Transform2d> POSE_TRANSFORM = ThreadLocal
+            .withInitial(Transform2d::new);
+
+    private final int id = nextId.getAndIncrement();
+
+    /**
+     * Number of pieces from which the pieces are searched through a tree
+     * instead of one by one.
+     */
+    static final int TREE_MIN_PIECES = 8;
+
+    private Vector2d[] vertices;
+
+    /**
+     * Local space vertices, interleaved as x0, y0, x1, y1, ...
+     */
+    private double[] local;
+
+    /**
+     * How the vertices are split into convex pieces.
+     */
+    private PolyDecompose.Mode mode = PolyDecompose.Mode.CONVEX;
+
+    private boolean isConvex;
+
+    /**
+     * Whether the local vertices wind counter clockwise.
+     */
+    private boolean counterClockwise;
+
+    /**
+     * Pseudo angles of the outward edge normals of a convex body in ascending
+     * order, and the vertex furthest along every direction from each normal
+     * up to the next one. Created on first use.
+     */
+    private double[] normalAngles;
+    private int[] normalVertices;
+
+    /**
+     * Convex pieces of the local space vertices, rebuilt whenever the
+     * vertices or the decomposition mode are set. Interleaved like the
+     * vertices.
+     */
+    private double[][] pieces;
+
+    /**
+     * Buffers holding the vertices and pieces transformed by the current pose,
+     * reused between queries and refreshed only when dirty.
+     */
+    private double[] world;
+    private double[][] worldPieces;
+    private final AABB bounds = new AABB();
+
+    /**
+     * Pose and bounds at the start of the open sweep, or null, and the
+     * bounds of the whole sweep.
+     */
+    private Pose sweepStart;
+    private final AABB sweepStartBounds = new AABB();
+    private final AABB sweptBounds = new AABB();
+
+    /**
+     * Bounds of every transformed piece as minX, minY, maxX, maxY, and the
+     * tree over them for bodies with many pieces.
+     */
+    private double[] pieceBounds;
+    private PieceTree pieceTree;
+
+    /**
+     * Separating axes to test for every piece: one normal per direction of
+     * its edges, parallel edges sharing a normal. Kept in local space and
+     * transformed to unit length world space axes with the pieces.
+     */
+    private double[][] axes;
+    private double[][] worldAxes;
+
+    /**
+     * Whether the pose or the vertices changed since the world buffers were
+     * last refreshed.
+     */
+    private boolean dirty = true;
+
+    private double x;
+    private double y;
+
+    private double offsetX;
+    private double offsetY;
+
+    private double rotation;
+
+    private double scaleX = 1;
+    private double scaleY = 1;
+
+    /**
+     * Center of the bounds of the local vertices, which is the point the body
+     * is rotated and scaled about.
+     */
+    private double pivotX;
+    private double pivotY;
+
+    /**
+     * Distance from the pivot to the furthest local vertex.
+     */
+    private double radius;
+
+    /**
+     * Current pose as a matrix, refreshed with the world buffers.
+     */
+    private final Transform2d transform = new Transform2d();
+
+    public Body(Vector2d[] vertices) {
+        setVertices(vertices);
+    }
+
+    public Body(Vector2d[] vertices, Vector2d offset) {
+        this(vertices);
+        this.offsetX = offset.x;
+        this.offsetY = offset.y;
+    }
+
+    /**
+     * Gets the id of this body, unique among the bodies created by this
+     * process.
+     *
+     * @return the id of this body
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the vertices of this body, transformed by its current pose. This
+     * creates new vectors on every call, use {@link #getWorldVertices()} on hot
+     * paths instead.
+     *
+     * @return the transformed vertices
+     */
+    public Vector2d[] getVertices() {
+        return toVectors(getWorldVertices());
+    }
+
+    /**
+     * Gets the convex pieces making up this body, transformed by its current
+     * pose. This creates new vectors on every call, use
+     * {@link #getWorldPieces()} on hot paths instead.
+     *
+     * @return the pieces of this body
+     */
+    public Vector2d[][] getPieces() {
+        double[][] buffers = getWorldPieces();
+
+        Vector2d[][] transformed = new Vector2d[buffers.length][];
+        for (int i = 0; i < buffers.length; i++) {
+            transformed[i] = toVectors(buffers[i]);
+        }
+
+        return transformed;
+    }
+
+    /**
+     * Gets the vertices of this body transformed by its current pose,
+     * interleaved as x0, y0, x1, y1, ... The returned buffer is owned by the
+     * body and overwritten when the pose changes, it must not be modified.
+     *
+     * @return the buffer holding the transformed vertices
+     */
+    public double[] getWorldVertices() {
+        update();
+        return world;
+    }
+
+    /**
+     * Copies the transformed vertices of this body into a buffer, interleaved
+     * as x0, y0, x1, y1, ...
+     *
+     * @param dst
+     *            the buffer to write to
+     * @param offset
+     *            the index of dst to start writing at
+     * @return the number of vertices written
+     */
+    public int getWorldVertices(double[] dst, int offset) {
+        double[] src = getWorldVertices();
+        System.arraycopy(src, 0, dst, offset, src.length);
+        return src.length / 2;
+    }
+
+    /**
+     * Copies the transformed vertices of this body into separate x and y
+     * buffers.
+     *
+     * @param xs
+     *            the buffer to write the x components to
+     * @param ys
+     *            the buffer to write the y components to
+     * @param offset
+     *            the index of xs and ys to start writing at
+     * @return the number of vertices written
+     */
+    public int getWorldVertices(double[] xs, double[] ys, int offset) {
+        double[] src = getWorldVertices();
+        int count = src.length / 2;
+
+        for (int i = 0; i < count; i++) {
+            xs[offset + i] = src[2 * i];
+            ys[offset + i] = src[2 * i + 1];
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the convex pieces of this body transformed by its current pose,
+     * each interleaved like {@link #getWorldVertices()}. The local vertices
+     * are only decomposed once, afterwards the cached pieces are just
+     * transformed. A convex body is its only piece and is never decomposed.
+     * The returned buffers are owned by the body and must not be modified.
+     *
+     * @return the buffers holding the transformed pieces
+     */
+    public double[][] getWorldPieces() {
+        update();
+        return worldPieces;
+    }
+
+    /**
+     * Creates the pieces and their buffers, so that queries only ever read
+     * them.
+     */
+    private void buildPieces() {
+        pieceTree = null;
+
+        if (isConvex) {
+            pieces = new double[][] { local };
+            worldPieces = new double[][] { world };
+        } else {
+            pieces = toArrays(decomposer.decompose(vertices, mode));
+            worldPieces = new double[pieces.length][];
+            for (int i = 0; i < pieces.length; i++) {
+                worldPieces[i] = new double[pieces[i].length];
+            }
+            if (pieces.length >= TREE_MIN_PIECES) {
+                pieceTree = new PieceTree(pieces);
+            }
+        }
+
+        pieceBounds = new double[4 * pieces.length];
+        axes = new double[pieces.length][];
+        worldAxes = new double[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            axes[i] = uniqueAxes(pieces[i]);
+            worldAxes[i] = new double[axes[i].length];
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * Sets how the vertices of this body are split into convex pieces.
+     *
+     * @param mode
+     *            the decomposition mode
+     */
+    public void setDecompositionMode(PolyDecompose.Mode mode) {
+        this.mode = mode;
+        buildPieces();
+    }
+
+    public PolyDecompose.Mode getDecompositionMode() {
+        return mode;
+    }
+
+    /**
+     * Checks if the vertices of this body form a convex polygon. Convexity
+     * does not change with the pose, so it is only checked when the vertices
+     * are set.
+     *
+     * @return true if this body is convex
+     */
+    public boolean isConvex() {
+        return isConvex;
+    }
+
+    private static boolean checkIfConvex(Vector2d[] vertices) {
+        // If user attempts to close the shape, ignore the closing vertex to
+        // avoid calculation errors
+        int verticesLength = vertices.length;
+        if (vertices[0].equals(vertices[vertices.length - 1])) {
+            verticesLength--;
+        }
+
+        if (verticesLength < 3) {
+            return true;
+        }
+
+        Vector2d prev = vertices[verticesLength - 2];
+        Vector2d curr = vertices[verticesLength - 1];
+        Vector2d next = vertices[0];
+
+        boolean isCCW = Vector2d.cross3(prev, curr, next) > 0;
+
+        for (int i = 1; i < verticesLength; i++) {
+            prev = curr;
+            curr = next;
+            next = vertices[i];
+            if ((Vector2d.cross3(prev, curr, next) > 0) != isCCW) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the bounds of this body in its current pose, or of the whole motion
+     * since the sweep was opened if there is one. The returned box is owned by
+     * the body and updated in place, it must not be modified.
+     *
+     * @return the bounds of this body
+     */
+    public AABB getAABB() {
+        update();
+        return sweepStart == null ? bounds : sweptBounds;
+    }
+
+    /**
+     * Opens a sweep from the current pose. Until it is closed the bounds of
+     * this body cover its whole motion from this pose to the current one, so
+     * broad phases report every pair that may have met along the way, and
+     * {@link CollisionWorld#findImpacts(ImpactCallback)} checks the motion
+     * for the first contact.
+     */
+    public void beginSweep() {
+        sweepStart = getPose();
+        update();
+        sweepStartBounds.set(bounds.minX, bounds.minY, bounds.maxX,
+                bounds.maxY);
+        sweptBounds.set(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY);
+    }
+
+    /**
+     * Closes the open sweep, if any.
+     */
+    public void endSweep() {
+        sweepStart = null;
+    }
+
+    /**
+     * Gets the pose the open sweep started from.
+     *
+     * @return the start pose, or null if no sweep is open
+     */
+    public Pose getSweepStart() {
+        return sweepStart;
+    }
+
+    /**
+     * Gets the bounds of the transformed pieces, four values per piece in the
+     * order of {@link #getWorldPieces()}.
+     */
+    double[] getWorldPieceBounds() {
+        getWorldPieces();
+        return pieceBounds;
+    }
+
+    /**
+     * Gets the unit length separating axes of the transformed pieces, in the
+     * order of {@link #getWorldPieces()} and interleaved like the pieces.
+     */
+    double[][] getWorldAxes() {
+        getWorldPieces();
+        return worldAxes;
+    }
+
+    /**
+     * Gets the tree over the transformed pieces, or null if this body has too
+     * few pieces to need one.
+     */
+    PieceTree getPieceTree() {
+        getWorldPieces();
+        return pieceTree;
+    }
+
+    /**
+     * Checks if a point lies inside this body in its current pose.
+     *
+     * @param x
+     *            x component of the point
+     * @param y
+     *            y component of the point
+     * @return true if the point is inside the body
+     */
+    public boolean contains(double x, double y) {
+        if (!getAABB().contains(x, y)) {
+            return false;
+        }
+
+        // Pieces are convex, split each one into a fan of triangles
+        for (double[] piece : getWorldPieces()) {
+            for (int i = 2; i + 3 < piece.length; i += 2) {
+                if (PolyDecompose.triPoint(piece[0], piece[1], piece[i],
+                        piece[i + 1], piece[i + 2], piece[i + 3], x, y)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Gets the distance from the pivot to the furthest local vertex, before
+     * scaling. No point of the body moves further than this times the scale
+     * when it rotates by one radian.
+     */
+    double getLocalRadius() {
+        return radius;
+    }
+
+    /**
+     * Transforms the pieces of this body by a pose other than its current
+     * one, leaving the body unchanged.
+     *
+     * @param dst
+     *            buffers shaped like {@link #getWorldPieces()} to write to
+     */
+    void getWorldPieces(double x, double y, double rotation, double scaleX,
+            double scaleY, double[][] dst) {
+
+        Transform2d pose = poseTransform(POSE_TRANSFORM.get(), x, y, rotation,
+                scaleX, scaleY);
+
+        for (int i = 0; i < pieces.length; i++) {
+            pose.apply(pieces[i], dst[i]);
+        }
+    }
+
+    /*
+     * Sets a transform to a pose of this body.
+     */
+    private Transform2d poseTransform(Transform2d dst, double x, double y,
+            double rotation, double scaleX, double scaleY) {
+
+        return dst.setPose(offsetX + x, offsetY + y, Math.toRadians(rotation),
+                scaleX, scaleY, pivotX, pivotY);
+    }
+
+    /**
+     * Gets buffers shaped like the pieces of this body, to pass to
+     * {@link #getWorldPieces(double, double, double, double, double, double[][])}.
+     *
+     * @param reuse
+     *            buffers returned by an earlier call, or null
+     * @return reuse if it has the right shape, otherwise new buffers
+     */
+    double[][] pieceBuffers(double[][] reuse) {
+        boolean fits = reuse != null && reuse.length == pieces.length;
+        for (int i = 0; fits && i < pieces.length; i++) {
+            fits = reuse[i].length == pieces[i].length;
+        }
+
+        if (fits) {
+            return reuse;
+        }
+
+        double[][] buffers = new double[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            buffers[i] = new double[pieces[i].length];
+        }
+
+        return buffers;
+    }
+
+    /**
+     * Builds every lazily created buffer and refreshes the ones depending on
+     * the pose, so queries that follow only read this body until it is
+     * changed again. Call this before sharing the body between threads.
+     */
+    public void prepare() {
+        getWorldPieces();
+        getAABB();
+
+        if (isConvex && normalAngles == null) {
+            buildNormalAngles();
+        }
+    }
+
+    /**
+     * Checks if the transformed vertices wind counter clockwise, which
+     * changes when the body is mirrored by a negative scale.
+     */
+    boolean isWorldCounterClockwise() {
+        update();
+        return counterClockwise == (transform.determinant() > 0);
+    }
+
+    /**
+     * Finds the vertex of a convex body furthest along a direction in
+     * O(log n). The direction is taken back to local space, where the vertex
+     * is found by binary search over the angles of the edge normals, so the
+     * search works for any pose.
+     *
+     * @param dirX
+     *            x component of the direction in world space
+     * @param dirY
+     *            y component of the direction in world space
+     * @return the index of the vertex
+     */
+    int support(double dirX, double dirY) {
+        if (normalAngles == null) {
+            buildNormalAngles();
+        }
+
+        update();
+
+        // The transpose of the linear part takes directions to local space
+        Transform2d m = transform;
+        double localX = m.getM00() * dirX + m.getM10() * dirY;
+        double localY = m.getM01() * dirX + m.getM11() * dirY;
+        double angle = pseudoAngle(localX, localY);
+
+        // Last normal at or before the direction, wrapping to the last one
+        int low = 0;
+        int high = normalAngles.length - 1;
+        int found = high;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (normalAngles[mid] <= angle) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return normalVertices[found];
+    }
+
+    /*
+     * Walks the edges in counter clockwise order, so the vertex ending an
+     * edge is furthest along every direction from its normal up to the next
+     * one. Collinear edges are merged into one entry ending at the last of
+     * them, including a run that wraps around the first vertex. Rounding
+     * gives collinear edges slightly different angles unless they are axis
+     * aligned, so they are found by a cross product relative to the edge
+     * lengths instead.
+     */
+    private void buildNormalAngles() {
+        int n = local.length / 2;
+
+        double[] angles = new double[n];
+        int[] vertex = new int[n];
+        int count = 0;
+
+        double firstX = 0;
+        double firstY = 0;
+        double prevX = 0;
+        double prevY = 0;
+
+        for (int t = 0; t < n; t++) {
+            int i = counterClockwise ? t : n - 1 - t;
+            int j = counterClockwise ? (t + 1) % n : (2 * n - 2 - t) % n;
+            double edgeX = local[2 * j] - local[2 * i];
+            double edgeY = local[2 * j + 1] - local[2 * i + 1];
+
+            if (edgeX == 0 && edgeY == 0) {
+                continue;
+            }
+
+            if (count > 0 && collinear(prevX, prevY, edgeX, edgeY)) {
+                vertex[count - 1] = j;
+            } else {
+                if (count == 0) {
+                    firstX = edgeX;
+                    firstY = edgeY;
+                }
+
+                angles[count] = pseudoAngle(edgeY, -edgeX);
+                vertex[count] = j;
+                count++;
+            }
+
+            prevX = edgeX;
+            prevY = edgeY;
+        }
+
+        // The last run continues into the first one, which ends it
+        if (count > 1 && collinear(prevX, prevY, firstX, firstY)) {
+            count--;
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // Equal angles keep the counter clockwise order
+        Arrays.sort(order, (p, q) -> angles[p] != angles[q]
+                ? Double.compare(angles[p], angles[q])
+                : Integer.compare(p, q));
+
+        normalAngles = new double[count];
+        normalVertices = new int[count];
+        for (int i = 0; i < count; i++) {
+            normalAngles[i] = angles[order[i]];
+            normalVertices[i] = vertex[order[i]];
+        }
+    }
+
+    /*
+     * Checks if two edges point the same way, up to rounding.
+     */
+    private static boolean collinear(double ax, double ay, double bx,
+            double by) {
+        double cross = ax * by - ay * bx;
+        double dot = ax * bx + ay * by;
+
+        return dot > 0 && Math.abs(cross) <= COLLINEAR_TOLERANCE * dot;
+    }
+
+    /*
+     * Maps the angle of a vector to [0, 4), increasing with the angle like
+     * atan2 but without trigonometry.
+     */
+    private static double pseudoAngle(double x, double y) {
+        if (x == 0 && y == 0) {
+            return 0;
+        }
+
+        if (y >= 0) {
+            return x >= 0 ? y / (x + y) : 1 - x / (-x + y);
+        }
+
+        return x < 0 ? 2 - y / (-x - y) : 3 + x / (x - y);
+    }
+
+    /**
+     * Refreshes the world buffers if the pose or the vertices changed.
+     */
+    private void update() {
+        if (!dirty) {
+            return;
+        }
+
+        poseTransform(transform, x, y, rotation, scaleX, scaleY);
+
+        transform.apply(local, world);
+        bounds.set(world);
+
+        // A convex body shares its buffers with its only piece
+        if (!isConvex) {
+            for (int i = 0; i < pieces.length; i++) {
+                transform.apply(pieces[i], worldPieces[i]);
+            }
+        }
+
+        if (sweepStart != null) {
+            updateSweptBounds();
+        }
+
+        for (int i = 0; i < worldPieces.length; i++) {
+            pieceBounds(worldPieces[i], pieceBounds, 4 * i);
+            transform.applyNormals(axes[i], worldAxes[i]);
+        }
+
+        if (pieceTree != null) {
+            pieceTree.refit(pieceBounds);
+        }
+
+        dirty = false;
+    }
+
+    /*
+     * Covers the bounds at both ends of the sweep. When the body also turns
+     * or scales, the poses in between can reach outside both, but no point
+     * gets further from the pivot than the local radius times the largest
+     * scale, and the pivot moves in a straight line.
+     */
+    private void updateSweptBounds() {
+        double minX = Math.min(bounds.minX, sweepStartBounds.minX);
+        double minY = Math.min(bounds.minY, sweepStartBounds.minY);
+        double maxX = Math.max(bounds.maxX, sweepStartBounds.maxX);
+        double maxY = Math.max(bounds.maxY, sweepStartBounds.maxY);
+
+        Pose start = sweepStart;
+        if (start.getRotation() != rotation
+                || start.getScaleX() != scaleX
+                || start.getScaleY() != scaleY) {
+
+            double reach = radius * Math.max(
+                    Math.max(Math.abs(start.getScaleX()),
+                            Math.abs(start.getScaleY())),
+                    Math.max(Math.abs(scaleX), Math.abs(scaleY)));
+            double startX = offsetX + start.getX() + pivotX;
+            double startY = offsetY + start.getY() + pivotY;
+            double endX = offsetX + x + pivotX;
+            double endY = offsetY + y + pivotY;
+
+            minX = Math.min(minX, Math.min(startX, endX) - reach);
+            minY = Math.min(minY, Math.min(startY, endY) - reach);
+            maxX = Math.max(maxX, Math.max(startX, endX) + reach);
+            maxY = Math.max(maxY, Math.max(startY, endY) + reach);
+        }
+
+        sweptBounds.set(minX, minY, maxX, maxY);
+    }
+
+    /*
+     * Finds the edge normals of a polygon, skipping empty edges and edges
+     * parallel to one already found.
+     */
+    private static double[] uniqueAxes(double[] v) {
+        double[] unique = new double[v.length];
+        int count = 0;
+
+        for (int i = 0, j = v.length - 2; i < v.length; j = i, i += 2) {
+            double axisX = v[i + 1] - v[j + 1];
+            double axisY = v[j] - v[i];
+
+            if (axisX == 0 && axisY == 0) {
+                continue;
+            }
+
+            boolean parallel = false;
+            for (int k = 0; k < count && !parallel; k += 2) {
+                double cross = axisX * unique[k + 1] - axisY * unique[k];
+                double scale = (Math.abs(axisX) + Math.abs(axisY))
+                        * (Math.abs(unique[k]) + Math.abs(unique[k + 1]));
+                parallel = Math.abs(cross) <= 1e-12 * scale;
+            }
+
+            if (!parallel) {
+                unique[count++] = axisX;
+                unique[count++] = axisY;
+            }
+        }
+
+        return Arrays.copyOf(unique, count);
+    }
+
+    private static void pieceBounds(double[] piece, double[] dst, int offset) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < piece.length; i += 2) {
+            minX = Math.min(minX, piece[i]);
+            minY = Math.min(minY, piece[i + 1]);
+            maxX = Math.max(maxX, piece[i]);
+            maxY = Math.max(maxY, piece[i + 1]);
+        }
+
+        dst[offset] = minX;
+        dst[offset + 1] = minY;
+        dst[offset + 2] = maxX;
+        dst[offset + 3] = maxY;
+    }
+
+    private static double signedArea(double[] v) {
+        double area = 0;
+        for (int i = 0, j = v.length - 2; i < v.length; j = i, i += 2) {
+            area += v[j] * v[i + 1] - v[i] * v[j + 1];
+        }
+
+        return area / 2;
+    }
+
+    private static double[] toArray(Vector2d[] points) {
+        double[] xy = new double[points.length * 2];
+        for (int i = 0; i < points.length; i++) {
+            xy[2 * i] = points[i].x;
+            xy[2 * i + 1] = points[i].y;
+        }
+
+        return xy;
+    }
+
+    private static double[][] toArrays(Vector2d[][] pieces) {
+        double[][] xy = new double[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            xy[i] = toArray(pieces[i]);
+        }
+
+        return xy;
+    }
+
+    private static Vector2d[] toVectors(double[] xy) {
+        Vector2d[] points = new Vector2d[xy.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Vector2d(xy[2 * i], xy[2 * i + 1]);
+        }
+
+        return points;
+    }
+
+    /**
+     * Gets the local space vertices of this body.
+     *
+     * @return the local vertices
+     */
+    public Vector2d[] getLocalVertices() {
+        return vertices;
+    }
+
+    public void setVertices(Vector2d[] n) {
+        vertices = n;
+        local = toArray(n);
+        world = new double[local.length];
+        isConvex = checkIfConvex(n);
+        counterClockwise = signedArea(local) > 0;
+        normalAngles = null;
+        normalVertices = null;
+        buildPieces();
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (Vector2d vertex : n) {
+            minX = Math.min(minX, vertex.x);
+            minY = Math.min(minY, vertex.y);
+            maxX = Math.max(maxX, vertex.x);
+            maxY = Math.max(maxY, vertex.y);
+        }
+
+        pivotX = (minX + maxX) / 2;
+        pivotY = (minY + maxY) / 2;
+
+        radius = 0;
+        for (Vector2d vertex : n) {
+            radius = Math.max(radius,
+                    Math.hypot(vertex.x - pivotX, vertex.y - pivotY));
+        }
+    }
+
+    /**
+     * Gets a snapshot of the current pose of this body.
+     *
+     * @return new Pose object holding the pose
+     */
+    public Pose getPose() {
+        return new Pose(x, y, rotation, scaleX, scaleY);
+    }
+
+    public void setPose(Pose pose) {
+        this.x = pose.getX();
+        this.y = pose.getY();
+        this.rotation = pose.getRotation();
+        this.scaleX = pose.getScaleX();
+        this.scaleY = pose.getScaleY();
+        dirty = true;
+    }
+
+    public void setX(double x) {
+        this.x = x;
+        dirty = true;
+    }
+
+    public void setY(double y) {
+        this.y = y;
+        dirty = true;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public void setOffset(double offsetX, double offsetY) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        dirty = true;
+    }
+
+    public double getOffsetX() {
+        return offsetX;
+    }
+
+    public double getOffsetY() {
+        return offsetY;
+    }
+
+    /**
+     * Sets the rotation of this body about its pivot.
+     *
+     * @param angle
+     *            the angle of rotation (degrees)
+     */
+    public void setRotation(double angle) {
+        this.rotation = angle;
+        dirty = true;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    public void setScale(double scaleX, double scaleY) {
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        dirty = true;
+    }
+
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    public double getScaleY() {
+        return scaleY;
+    }
+}
@@ -0,0 +1,293 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+/**
+ * BodyBuffer.
+ * <p>
+ * World space vertices of many bodies packed into flat arrays, for checking
+ * large batches of pairs with {@link BatchSAT} without following references
+ * from body to body. Every body is stored as one or more convex polygons,
+ * the vertices of polygon p are x[offset[p] + i], y[offset[p] + i] for i below
+ * count[p], and the polygons of body b are firstPolygon[b] up to
+ * firstPolygon[b] + polygonCount[b]. Bounds are kept for every body and every
+ * polygon.
+ * <p>
+ * Bodies are added once and refreshed in place with
+ * {@link #update(int, Body)} after they move.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class BodyBuffer {
+
+    double[] x;
+    double[] y;
+    int vertexCount;
+
+    int[] offset;
+    int[] count;
+    double[] polygonMinX;
+    double[] polygonMinY;
+    double[] polygonMaxX;
+    double[] polygonMaxY;
+    int polygonCount;
+
+    int[] firstPolygon;
+    int[] bodyPolygons;
+    double[] bodyMinX;
+    double[] bodyMinY;
+    double[] bodyMaxX;
+    double[] bodyMaxY;
+    int bodyCount;
+
+    public BodyBuffer() {
+        this(64, 512);
+    }
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param bodies
+     *            the number of bodies and polygons to make room for
+     * @param vertices
+     *            the number of vertices to make room for
+     */
+    public BodyBuffer(int bodies, int vertices) {
+        bodies = Math.max(1, bodies);
+        vertices = Math.max(1, vertices);
+
+        x = new double[vertices];
+        y = new double[vertices];
+
+        offset = new int[bodies];
+        count = new int[bodies];
+        polygonMinX = new double[bodies];
+        polygonMinY = new double[bodies];
+        polygonMaxX = new double[bodies];
+        polygonMaxY = new double[bodies];
+
+        firstPolygon = new int[bodies];
+        bodyPolygons = new int[bodies];
+        bodyMinX = new double[bodies];
+        bodyMinY = new double[bodies];
+        bodyMaxX = new double[bodies];
+        bodyMaxY = new double[bodies];
+    }
+
+    public void clear() {
+        vertexCount = 0;
+        polygonCount = 0;
+        bodyCount = 0;
+    }
+
+    public int size() {
+        return bodyCount;
+    }
+
+    /**
+     * Adds a body in its current pose, one polygon per convex piece.
+     *
+     * @param body
+     *            the body to add
+     * @return the index of the body in this buffer
+     */
+    public int add(Body body) {
+        int index = beginBody();
+
+        for (double[] piece : body.getWorldPieces()) {
+            int p = beginPolygon(piece.length / 2);
+            write(p, piece);
+        }
+
+        endBody(index);
+        return index;
+    }
+
+    /**
+     * Adds a convex polygon as a body of its own.
+     *
+     * @param xs
+     *            the x components of the vertices
+     * @param ys
+     *            the y components of the vertices
+     * @param from
+     *            the index of the first vertex in xs and ys
+     * @param n
+     *            the number of vertices
+     * @return the index of the body in this buffer
+     */
+    public int add(double[] xs, double[] ys, int from, int n) {
+        int index = beginBody();
+        int p = beginPolygon(n);
+
+        System.arraycopy(xs, from, x, offset[p], n);
+        System.arraycopy(ys, from, y, offset[p], n);
+        polygonBounds(p);
+
+        endBody(index);
+        return index;
+    }
+
+    /**
+     * Copies the current pose of a body over a body of this buffer, which
+     * must have been added from a body with the same pieces.
+     *
+     * @param index
+     *            the index of the body in this buffer
+     * @param body
+     *            the body to copy
+     */
+    public void update(int index, Body body) {
+        double[][] pieces = body.getWorldPieces();
+
+        if (pieces.length != bodyPolygons[index]) {
+            throw new IllegalArgumentException(
+                    "The body does not match the stored body.");
+        }
+
+        for (int i = 0; i < pieces.length; i++) {
+            int p = firstPolygon[index] + i;
+
+            if (pieces[i].length / 2 != count[p]) {
+                throw new IllegalArgumentException(
+                        "The body does not match the stored body.");
+            }
+
+            write(p, pieces[i]);
+        }
+
+        endBody(index);
+    }
+
+    /**
+     * Gets the x components of all vertices. The returned array is owned by
+     * the buffer and may be longer than the vertices stored.
+     *
+     * @return the x components
+     */
+    public double[] getX() {
+        return x;
+    }
+
+    /**
+     * Gets the y components of all vertices. The returned array is owned by
+     * the buffer and may be longer than the vertices stored.
+     *
+     * @return the y components
+     */
+    public double[] getY() {
+        return y;
+    }
+
+    public int getPolygonCount(int body) {
+        return bodyPolygons[body];
+    }
+
+    /**
+     * Gets the index of the first vertex of a polygon of a body.
+     *
+     * @param body
+     *            the index of the body
+     * @param polygon
+     *            the index of the polygon within the body
+     * @return the index into the vertex arrays
+     */
+    public int getOffset(int body, int polygon) {
+        return offset[firstPolygon[body] + polygon];
+    }
+
+    public int getCount(int body, int polygon) {
+        return count[firstPolygon[body] + polygon];
+    }
+
+    private int beginBody() {
+        if (bodyCount == firstPolygon.length) {
+            int capacity = bodyCount * 2;
+            firstPolygon = Arrays.copyOf(firstPolygon, capacity);
+            bodyPolygons = Arrays.copyOf(bodyPolygons, capacity);
+            bodyMinX = Arrays.copyOf(bodyMinX, capacity);
+            bodyMinY = Arrays.copyOf(bodyMinY, capacity);
+            bodyMaxX = Arrays.copyOf(bodyMaxX, capacity);
+            bodyMaxY = Arrays.copyOf(bodyMaxY, capacity);
+        }
+
+        firstPolygon[bodyCount] = polygonCount;
+        bodyPolygons[bodyCount] = 0;
+        return bodyCount++;
+    }
+
+    private int beginPolygon(int n) {
+        if (polygonCount == offset.length) {
+            int capacity = polygonCount * 2;
+            offset = Arrays.copyOf(offset, capacity);
+            count = Arrays.copyOf(count, capacity);
+            polygonMinX = Arrays.copyOf(polygonMinX, capacity);
+            polygonMinY = Arrays.copyOf(polygonMinY, capacity);
+            polygonMaxX = Arrays.copyOf(polygonMaxX, capacity);
+            polygonMaxY = Arrays.copyOf(polygonMaxY, capacity);
+        }
+
+        if (vertexCount + n > x.length) {
+            int capacity = Math.max(x.length * 2, vertexCount + n);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+        }
+
+        offset[polygonCount] = vertexCount;
+        count[polygonCount] = n;
+        vertexCount += n;
+        bodyPolygons[bodyCount - 1]++;
+
+        return polygonCount++;
+    }
+
+    private void write(int p, double[] piece) {
+        int o = offset[p];
+        for (int i = 0; i < count[p]; i++) {
+            x[o + i] = piece[2 * i];
+            y[o + i] = piece[2 * i + 1];
+        }
+
+        polygonBounds(p);
+    }
+
+    private void polygonBounds(int p) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = offset[p], end = offset[p] + count[p]; i < end; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        polygonMinX[p] = minX;
+        polygonMinY[p] = minY;
+        polygonMaxX[p] = maxX;
+        polygonMaxY[p] = maxY;
+    }
+
+    private void endBody(int index) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int p = firstPolygon[index], end = p + bodyPolygons[index];
+                p < end; p++) {
+            minX = Math.min(minX, polygonMinX[p]);
+            minY = Math.min(minY, polygonMinY[p]);
+            maxX = Math.max(maxX, polygonMaxX[p]);
+            maxY = Math.max(maxY, polygonMaxY[p]);
+        }
+
+        bodyMinX[index] = minX;
+        bodyMinY[index] = minY;
+        bodyMaxX[index] = maxX;
+        bodyMaxY[index] = maxY;
+    }
+}
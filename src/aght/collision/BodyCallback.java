@@ -0,0 +1,14 @@
+package aght.collision;
+
+/**
+ * BodyCallback.
+ * <p>
+ * Receives the bodies found by a query.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public interface BodyCallback {
+
+    void visit(Body body);
+}
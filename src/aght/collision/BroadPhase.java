@@ -0,0 +1,38 @@
+package aght.collision;
+
+/**
+ * BroadPhase.
+ * <p>
+ * Finds the pairs of bodies whose bounds overlap, so that only those pairs go
+ * through the narrow phase.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public interface BroadPhase {
+
+    void add(Body body);
+
+    /**
+     * Removes a body.
+     *
+     * @param body
+     *            the body to remove
+     * @return true if the body was found
+     */
+    boolean remove(Body body);
+
+    /**
+     * Reads the current bounds of every body. Must be called after bodies moved
+     * and before {@link #findPairs(PairCallback)}.
+     */
+    void update();
+
+    /**
+     * Reports every pair of bodies whose bounds overlap, each pair once.
+     *
+     * @param callback
+     *            the callback receiving the pairs
+     */
+    void findPairs(PairCallback callback);
+}
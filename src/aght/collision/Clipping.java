@@ -0,0 +1,278 @@
+package aght.collision;
+
+/**
+ * Clipping.
+ * <p>
+ * Finds the contact points of two colliding convex polygons. Each polygon picks
+ * the edge most perpendicular to the collision normal among the edges at its
+ * furthest vertex, the more perpendicular of the two becomes the reference
+ * edge and the other the incident edge. The incident edge is clipped to the
+ * sides of the reference edge, and the clipped points that are behind the
+ * reference edge are the contacts.
+ * <p>
+ * Every contact gets an id naming the features that produced it, laid out
+ * from the lowest bit as:
+ *
+ * <pre>
+ * bits  0-15  incident vertex or edge index
+ * bits 16-17  feature kind: incident vertex, clipped by the start or the end
+ *             side of the reference edge, or deepest vertex fallback
+ * bits 18-33  reference edge index
+ * bit     34  whether the reference edge belongs to the second polygon
+ * bits 35-48  piece index within the second body
+ * bits 49-62  piece index within the first body
+ * </pre>
+ *
+ * Each field has its own bits, so ids differ whenever any feature does, up
+ * to indices wrapping past the width of their field.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+final class Clipping {
+
+    /*
+     * Tolerance preferring the first polygon as reference, so the choice does
+     * not flip between steps when both edges are about as perpendicular.
+     */
+    private static final double REFERENCE_TOLERANCE = 1e-3;
+
+    /*
+     * Fields of a contact id, see the class comment.
+     */
+    private static final int INDEX_MASK = 0xFFFF;
+    private static final int KIND_SHIFT = 16;
+    private static final int REF_EDGE_SHIFT = 18;
+    private static final int FLIP_SHIFT = 34;
+    private static final int PIECE_B_SHIFT = 35;
+    private static final int PIECE_A_SHIFT = 49;
+    private static final int PIECE_MASK = 0x3FFF;
+
+    /*
+     * Feature kinds, stored above the vertex or edge index of a feature.
+     */
+    private static final int VERTEX = 0;
+    private static final int CLIPPED = 1 << KIND_SHIFT;
+    private static final int CLIPPED_END = 2 << KIND_SHIFT;
+    private static final int SUPPORT = 3 << KIND_SHIFT;
+
+    private Clipping() {
+    }
+
+    /**
+     * Adds the contact points of two colliding convex polygons to the
+     * candidates of a manifold.
+     *
+     * @param a
+     *            the vertices of the first polygon, interleaved
+     * @param b
+     *            the vertices of the second polygon, interleaved
+     * @param normalX
+     *            x component of the collision normal, pointing from a to b
+     * @param normalY
+     *            y component of the collision normal
+     * @param depth
+     *            the penetration depth along the normal
+     * @param pieceA
+     *            the index of the first polygon within its body
+     * @param pieceB
+     *            the index of the second polygon within its body
+     * @param result
+     *            the manifold to add the points to
+     */
+    static void clip(double[] a, double[] b, double normalX, double normalY,
+            double depth, int pieceA, int pieceB, Manifold result) {
+
+        int edgeA = bestEdge(a, normalX, normalY);
+        int edgeB = bestEdge(b, -normalX, -normalY);
+
+        double[] ref;
+        double[] inc;
+        int refEdge;
+        int incEdge;
+        boolean flip;
+        double dirX;
+        double dirY;
+
+        if (perpendicularity(b, edgeB, normalX, normalY)
+                < perpendicularity(a, edgeA, normalX, normalY)
+                        - REFERENCE_TOLERANCE) {
+            ref = b;
+            inc = a;
+            refEdge = edgeB;
+            incEdge = edgeA;
+            flip = true;
+            dirX = -normalX;
+            dirY = -normalY;
+        } else {
+            ref = a;
+            inc = b;
+            refEdge = edgeA;
+            incEdge = edgeB;
+            flip = false;
+            dirX = normalX;
+            dirY = normalY;
+        }
+
+        int refCount = ref.length / 2;
+        int r1 = refEdge;
+        int r2 = (refEdge + 1) % refCount;
+        double r1x = ref[2 * r1];
+        double r1y = ref[2 * r1 + 1];
+        double r2x = ref[2 * r2];
+        double r2y = ref[2 * r2 + 1];
+
+        double tangentX = r2x - r1x;
+        double tangentY = r2y - r1y;
+        double length = Math.sqrt(tangentX * tangentX + tangentY * tangentY);
+        tangentX /= length;
+        tangentY /= length;
+
+        // Outward normal of the reference edge, facing the incident polygon
+        double faceX = tangentY;
+        double faceY = -tangentX;
+        if (faceX * dirX + faceY * dirY < 0) {
+            faceX = -faceX;
+            faceY = -faceY;
+        }
+
+        int incCount = inc.length / 2;
+        int i1 = incEdge;
+        int i2 = (incEdge + 1) % incCount;
+
+        result.clipX[0] = inc[2 * i1];
+        result.clipY[0] = inc[2 * i1 + 1];
+        result.clipFeature[0] = VERTEX | (i1 & INDEX_MASK);
+        result.clipX[1] = inc[2 * i2];
+        result.clipY[1] = inc[2 * i2 + 1];
+        result.clipFeature[1] = VERTEX | (i2 & INDEX_MASK);
+
+        long idBase = ((long) (pieceA & PIECE_MASK) << PIECE_A_SHIFT)
+                | ((long) (pieceB & PIECE_MASK) << PIECE_B_SHIFT)
+                | ((long) (flip ? 1 : 0) << FLIP_SHIFT)
+                | ((long) (refEdge & INDEX_MASK) << REF_EDGE_SHIFT);
+
+        int count = clipSegment(result, -tangentX, -tangentY,
+                -(tangentX * r1x + tangentY * r1y),
+                CLIPPED | (incEdge & INDEX_MASK));
+
+        if (count == 2) {
+            count = clipSegment(result, tangentX, tangentY,
+                    tangentX * r2x + tangentY * r2y,
+                    CLIPPED_END | (incEdge & INDEX_MASK));
+        }
+
+        boolean added = false;
+
+        if (count == 2) {
+            for (int i = 0; i < 2; i++) {
+                double px = result.clipX[i];
+                double py = result.clipY[i];
+                double separation = faceX * (px - r1x) + faceY * (py - r1y);
+
+                if (separation <= 0) {
+                    // Report the point halfway between both surfaces
+                    result.addCandidate(px - faceX * separation / 2,
+                            py - faceY * separation / 2, -separation,
+                            idBase | result.clipFeature[i]);
+                    added = true;
+                }
+            }
+        }
+
+        // Degenerate cases, fall back to the deepest vertex of the incident
+        // polygon
+        if (!added) {
+            int support = 0;
+            double min = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < incCount; i++) {
+                double dot = dirX * inc[2 * i] + dirY * inc[2 * i + 1];
+                if (dot < min) {
+                    min = dot;
+                    support = i;
+                }
+            }
+
+            result.addCandidate(inc[2 * support], inc[2 * support + 1], depth,
+                    idBase | SUPPORT | (support & INDEX_MASK));
+        }
+    }
+
+    /*
+     * Clips the segment held in the scratch space of the manifold, keeping the
+     * part where dot(normal, p) <= offset. Returns the number of points left.
+     */
+    private static int clipSegment(Manifold m, double normalX, double normalY,
+            double offset, int feature) {
+
+        double d0 = normalX * m.clipX[0] + normalY * m.clipY[0] - offset;
+        double d1 = normalX * m.clipX[1] + normalY * m.clipY[1] - offset;
+
+        if (d0 <= 0 && d1 <= 0) {
+            return 2;
+        }
+
+        if (d0 > 0 && d1 > 0) {
+            return 0;
+        }
+
+        // One point is outside, move it onto the clipping line
+        double t = d0 / (d0 - d1);
+        double x = m.clipX[0] + t * (m.clipX[1] - m.clipX[0]);
+        double y = m.clipY[0] + t * (m.clipY[1] - m.clipY[0]);
+        int outside = d0 > 0 ? 0 : 1;
+
+        m.clipX[outside] = x;
+        m.clipY[outside] = y;
+        m.clipFeature[outside] = feature;
+
+        return 2;
+    }
+
+    /*
+     * Finds the edge at the furthest vertex along a direction which is most
+     * perpendicular to it. Edge i goes from vertex i to vertex i + 1.
+     */
+    private static int bestEdge(double[] v, double dirX, double dirY) {
+        int count = v.length / 2;
+
+        int furthest = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double dot = dirX * v[2 * i] + dirY * v[2 * i + 1];
+            if (dot > max) {
+                max = dot;
+                furthest = i;
+            }
+        }
+
+        int prev = (furthest - 1 + count) % count;
+
+        if (perpendicularity(v, prev, dirX, dirY) <= perpendicularity(v,
+                furthest, dirX, dirY)) {
+            return prev;
+        }
+
+        return furthest;
+    }
+
+    /*
+     * Absolute cosine of the angle between an edge and a direction, 0 when
+     * they are perpendicular.
+     */
+    private static double perpendicularity(double[] v, int edge, double dirX,
+            double dirY) {
+
+        int next = (edge + 1) % (v.length / 2);
+        double ex = v[2 * next] - v[2 * edge];
+        double ey = v[2 * next + 1] - v[2 * edge + 1];
+        double length = Math.sqrt(ex * ex + ey * ey);
+
+        if (length == 0) {
+            return 1;
+        }
+
+        return Math.abs(ex * dirX + ey * dirY) / length;
+    }
+}
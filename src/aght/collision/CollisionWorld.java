@@ -0,0 +1,192 @@
+package aght.collision;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CollisionWorld.
+ * <p>
+ * Holds many bodies and finds the ones colliding with each other. A broad
+ * phase picks the pairs whose bounds overlap, and only those pairs are tested
+ * with {@link SAT}. Sweep and prune is used unless another broad phase is
+ * given. The pairs are checked with {@link NarrowPhase#SAT} unless another
+ * narrow phase is set. A {@link PairCache} can be set to reuse the result of
+ * the previous step for pairs that stay close, it is only used with SAT.
+ * <p>
+ * When a fork/join pool is set the pairs are checked on it in parallel. The
+ * callbacks are still called on the calling thread, in the same order as
+ * without a pool. The pair cache is not used in parallel.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class CollisionWorld {
+
+    private final List<Body> bodies = new ArrayList<Body>();
+
+    private final BroadPhase broadPhase;
+
+    private final Manifold manifold = new Manifold();
+
+    private final Impact impact = new Impact();
+
+    private NarrowPhase narrowPhase = NarrowPhase.SAT;
+
+    private PairCache pairCache;
+
+    private ForkJoinPool pool;
+
+    private final PairBatch batch = new PairBatch();
+
+    public CollisionWorld() {
+        this(new SweepAndPrune());
+    }
+
+    public CollisionWorld(BroadPhase broadPhase) {
+        this.broadPhase = broadPhase;
+    }
+
+    public void add(Body body) {
+        bodies.add(body);
+        broadPhase.add(body);
+    }
+
+    public void remove(Body body) {
+        if (bodies.remove(body)) {
+            broadPhase.remove(body);
+        }
+    }
+
+    public BroadPhase getBroadPhase() {
+        return broadPhase;
+    }
+
+    public void setNarrowPhase(NarrowPhase narrowPhase) {
+        this.narrowPhase = narrowPhase;
+    }
+
+    public NarrowPhase getNarrowPhase() {
+        return narrowPhase;
+    }
+
+    /**
+     * Sets the cache used to speed up the narrow phase of {@link #step}.
+     *
+     * @param pairCache
+     *            the cache, or null to check every pair from scratch
+     */
+    public void setPairCache(PairCache pairCache) {
+        this.pairCache = pairCache;
+    }
+
+    public PairCache getPairCache() {
+        return pairCache;
+    }
+
+    /**
+     * Sets the pool the pairs are checked on.
+     *
+     * @param pool
+     *            the pool, for example {@link ForkJoinPool#commonPool()}, or
+     *            null to check the pairs on the calling thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public List<Body> getBodies() {
+        return Collections.unmodifiableList(bodies);
+    }
+
+    /**
+     * Finds every pair of bodies colliding in their current pose.
+     *
+     * @param callback
+     *            the callback receiving the colliding pairs
+     */
+    public void step(PairCallback callback) {
+        broadPhase.update();
+
+        if (pool != null) {
+            gatherPairs();
+            batch.collide(pool, narrowPhase, callback);
+            return;
+        }
+
+        final NarrowPhase narrow = narrowPhase;
+        final PairCache cache = narrow == NarrowPhase.SAT ? pairCache : null;
+        if (cache != null) {
+            cache.nextGeneration();
+        }
+
+        broadPhase.findPairs((a, b) -> {
+            boolean collide = cache != null ? SAT.collide(a, b, cache)
+                    : narrow.collide(a, b);
+
+            if (collide) {
+                callback.pair(a, b);
+            }
+        });
+    }
+
+    /**
+     * Finds every pair of bodies colliding in their current pose, along with
+     * their contact manifold. The manifold passed to the callback is reused
+     * for every pair and must be copied if kept.
+     *
+     * @param callback
+     *            the callback receiving the colliding pairs
+     */
+    public void findContacts(ContactCallback callback) {
+        broadPhase.update();
+
+        if (pool != null) {
+            gatherPairs();
+            batch.findContacts(pool, narrowPhase, callback);
+            return;
+        }
+
+        broadPhase.findPairs((a, b) -> {
+            if (narrowPhase.collideWithManifold(a, b, manifold)) {
+                callback.contact(a, b, manifold);
+            }
+        });
+    }
+
+    /**
+     * Finds every pair of bodies that touch while moving from the start of
+     * their open sweep to their current pose, see {@link Body#beginSweep()},
+     * along with their first contact. Bodies without an open sweep are taken
+     * to stay in place. The impact passed to the callback is reused for every
+     * pair and must be copied if kept.
+     *
+     * @param callback
+     *            the callback receiving the pairs
+     */
+    public void findImpacts(ImpactCallback callback) {
+        broadPhase.update();
+
+        if (pool != null) {
+            gatherPairs();
+            batch.findImpacts(pool, callback);
+            return;
+        }
+
+        broadPhase.findPairs((a, b) -> {
+            if (TimeOfImpact.compute(a, b, impact)) {
+                callback.impact(a, b, impact);
+            }
+        });
+    }
+
+    private void gatherPairs() {
+        batch.clear();
+        broadPhase.findPairs(batch::add);
+    }
+}
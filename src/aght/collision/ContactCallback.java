@@ -0,0 +1,14 @@
+package aght.collision;
+
+/**
+ * ContactCallback.
+ * <p>
+ * Receives pairs of colliding bodies together with their contact manifold.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public interface ContactCallback {
+
+    void contact(Body a, Body b, Manifold manifold);
+}
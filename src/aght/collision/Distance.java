@@ -0,0 +1,76 @@
+package aght.collision;
+
+import aght.math.Vector2d;
+
+/**
+ * Distance.
+ * <p>
+ * Result of a distance query between two bodies, holding the distance between
+ * them and the closest point of each body. When the bodies overlap the
+ * distance is 0 and both points are the same point shared by the bodies. A
+ * distance can be reused between queries to avoid allocation.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class Distance {
+
+    double distance;
+
+    double pointAX;
+    double pointAY;
+    double pointBX;
+    double pointBY;
+
+    void set(double distance, double pointAX, double pointAY, double pointBX,
+            double pointBY) {
+
+        this.distance = distance;
+        this.pointAX = pointAX;
+        this.pointAY = pointAY;
+        this.pointBX = pointBX;
+        this.pointBY = pointBY;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public boolean isOverlapping() {
+        return distance == 0;
+    }
+
+    public double getPointAX() {
+        return pointAX;
+    }
+
+    public double getPointAY() {
+        return pointAY;
+    }
+
+    public double getPointBX() {
+        return pointBX;
+    }
+
+    public double getPointBY() {
+        return pointBY;
+    }
+
+    /**
+     * Gets the point of the first body closest to the second body.
+     *
+     * @return new Vector2d object holding the point
+     */
+    public Vector2d getPointA() {
+        return new Vector2d(pointAX, pointAY);
+    }
+
+    /**
+     * Gets the point of the second body closest to the first body.
+     *
+     * @return new Vector2d object holding the point
+     */
+    public Vector2d getPointB() {
+        return new Vector2d(pointBX, pointBY);
+    }
+}
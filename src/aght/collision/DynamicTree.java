@@ -0,0 +1,560 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+/**
+ * DynamicTree.
+ * <p>
+ * Broad phase using a bounding volume hierarchy of AABBs. Every body is a leaf
+ * holding a fat copy of its bounds, enlarged by a margin, so a body that moves
+ * a little stays inside its fat bounds and does not have to be reinserted.
+ * The tree is kept balanced with rotations as leaves are inserted and removed.
+ * <p>
+ * The nodes are stored in flat arrays indexed by node id rather than as
+ * objects, and removed nodes are recycled through a free list. Queries reuse
+ * a traversal stack owned by the tree, so a tree must not be queried from
+ * more than one thread at a time, and not modified from inside a callback.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class DynamicTree implements BroadPhase {
+
+    private static final int NULL = -1;
+
+    /**
+     * Default amount the bounds of a leaf are enlarged by on each side.
+     */
+    public static final double DEFAULT_MARGIN = 4;
+
+    private final double margin;
+
+    private int root = NULL;
+
+    private int capacity;
+    private int freeList;
+
+    /*
+     * Node bounds. For a leaf these are the fat bounds, for an inner node the
+     * union of its children.
+     */
+    private double[] minX;
+    private double[] minY;
+    private double[] maxX;
+    private double[] maxY;
+
+    /*
+     * Parent of a node. Free nodes use it as the next node of the free list.
+     */
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+
+    /*
+     * Height of a node, 0 for leaves and -1 for free nodes.
+     */
+    private int[] height;
+
+    private Body[] data;
+
+    private int[] stack = new int[64];
+
+    /*
+     * Bodies added through the broad phase methods and their leaves.
+     */
+    private Body[] bodies = new Body[16];
+    private int[] proxies = new int[16];
+    private int bodyCount;
+
+    public DynamicTree() {
+        this(DEFAULT_MARGIN);
+    }
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param margin
+     *            the amount the bounds of a leaf are enlarged by on each side
+     */
+    public DynamicTree(double margin) {
+        this.margin = margin;
+
+        capacity = 16;
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        parent = new int[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        height = new int[capacity];
+        data = new Body[capacity];
+
+        linkFreeNodes(0);
+    }
+
+    /**
+     * Creates a leaf for a body.
+     *
+     * @param aabb
+     *            the current bounds of the body
+     * @param body
+     *            the body stored in the leaf
+     * @return the id of the leaf
+     */
+    public int createProxy(AABB aabb, Body body) {
+        int proxy = allocateNode();
+
+        setFat(proxy, aabb);
+        data[proxy] = body;
+        height[proxy] = 0;
+
+        insertLeaf(proxy);
+
+        return proxy;
+    }
+
+    public void destroyProxy(int proxy) {
+        removeLeaf(proxy);
+        freeNode(proxy);
+    }
+
+    /**
+     * Updates the bounds of a leaf. The leaf is only reinserted when the new
+     * bounds are no longer contained in its fat bounds.
+     *
+     * @param proxy
+     *            the id of the leaf
+     * @param aabb
+     *            the new bounds of the body
+     * @return true if the leaf was reinserted
+     */
+    public boolean moveProxy(int proxy, AABB aabb) {
+        if (minX[proxy] <= aabb.minX && minY[proxy] <= aabb.minY
+                && maxX[proxy] >= aabb.maxX && maxY[proxy] >= aabb.maxY) {
+            return false;
+        }
+
+        removeLeaf(proxy);
+        setFat(proxy, aabb);
+        insertLeaf(proxy);
+
+        return true;
+    }
+
+    public Body getBody(int proxy) {
+        return data[proxy];
+    }
+
+    /**
+     * Gets the height of the tree, 0 for an empty tree or a single leaf.
+     *
+     * @return the height of the tree
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    /**
+     * Reports every body whose bounds overlap a region.
+     *
+     * @param region
+     *            the region to search
+     * @param callback
+     *            the callback receiving the bodies
+     */
+    public void query(AABB region, BodyCallback callback) {
+        query(region.minX, region.minY, region.maxX, region.maxY, NULL,
+                callback, null);
+    }
+
+    @Override
+    public void add(Body body) {
+        if (bodyCount == bodies.length) {
+            Body[] nBodies = new Body[bodyCount * 2];
+            System.arraycopy(bodies, 0, nBodies, 0, bodyCount);
+            bodies = nBodies;
+
+            int[] nProxies = new int[bodyCount * 2];
+            System.arraycopy(proxies, 0, nProxies, 0, bodyCount);
+            proxies = nProxies;
+        }
+
+        bodies[bodyCount] = body;
+        proxies[bodyCount] = createProxy(body.getAABB(), body);
+        bodyCount++;
+    }
+
+    @Override
+    public boolean remove(Body body) {
+        for (int i = 0; i < bodyCount; i++) {
+            if (bodies[i] == body) {
+                destroyProxy(proxies[i]);
+
+                bodyCount--;
+                bodies[i] = bodies[bodyCount];
+                proxies[i] = proxies[bodyCount];
+                bodies[bodyCount] = null;
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public void update() {
+        for (int i = 0; i < bodyCount; i++) {
+            moveProxy(proxies[i], bodies[i].getAABB());
+        }
+    }
+
+    /**
+     * Reports every pair of bodies whose bounds overlap, each pair once. The
+     * fat bounds are used to walk the tree, pairs are only reported when the
+     * actual bounds of the bodies overlap.
+     */
+    @Override
+    public void findPairs(PairCallback callback) {
+        for (int i = 0; i < bodyCount; i++) {
+            int proxy = proxies[i];
+
+            query(minX[proxy], minY[proxy], maxX[proxy], maxY[proxy], proxy,
+                    null, callback);
+        }
+    }
+
+    /*
+     * Walks the tree, reporting leaves overlapping the box either as bodies or,
+     * when a proxy is given, as pairs with that proxy's body. Pairs are only
+     * reported for leaves with a greater id than the proxy so each pair is
+     * reported once.
+     */
+    private void query(double qMinX, double qMinY, double qMaxX, double qMaxY,
+            int proxy, BodyCallback bodyCallback, PairCallback pairCallback) {
+
+        if (root == NULL) {
+            return;
+        }
+
+        int top = 0;
+        stack[top++] = root;
+
+        while (top > 0) {
+            int node = stack[--top];
+
+            if (minX[node] > qMaxX || maxX[node] < qMinX
+                    || minY[node] > qMaxY || maxY[node] < qMinY) {
+                continue;
+            }
+
+            if (child1[node] == NULL) {
+                if (proxy == NULL) {
+                    if (data[node].getAABB().intersects(qMinX, qMinY, qMaxX,
+                            qMaxY)) {
+                        bodyCallback.visit(data[node]);
+                    }
+                } else if (node > proxy && data[node].getAABB()
+                        .intersects(data[proxy].getAABB())) {
+                    pairCallback.pair(data[proxy], data[node]);
+                }
+                continue;
+            }
+
+            if (top + 2 > stack.length) {
+                int[] nStack = new int[stack.length * 2];
+                System.arraycopy(stack, 0, nStack, 0, top);
+                stack = nStack;
+            }
+
+            stack[top++] = child1[node];
+            stack[top++] = child2[node];
+        }
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // Find the best sibling, going down the cheapest branch by perimeter
+        int index = root;
+        while (child1[index] != NULL) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            double area = perimeter(index);
+            double combinedArea = unionPerimeter(index, leaf);
+
+            // Cost of creating a new parent for this node and the leaf
+            double cost = 2 * combinedArea;
+
+            // Minimum cost of pushing the leaf further down the tree
+            double inheritanceCost = 2 * (combinedArea - area);
+
+            double cost1 = descendCost(c1, leaf) + inheritanceCost;
+            double cost2 = descendCost(c2, leaf) + inheritanceCost;
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        int sibling = index;
+
+        // Create a new parent for the sibling and the leaf
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        data[newParent] = null;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            // Replace the parent with the sibling
+            if (child1[grandParent] == p) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(p);
+
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+    }
+
+    /*
+     * Walks up from a node, rebalancing and fixing bounds and heights.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setUnion(index, c1, c2);
+
+            index = parent[index];
+        }
+    }
+
+    /*
+     * Performs a left or right rotation if node A is imbalanced, returning the
+     * new root of the subtree.
+     */
+    private int balance(int a) {
+        if (child1[a] == NULL || height[a] < 2) {
+            return a;
+        }
+
+        int b = child1[a];
+        int c = child2[a];
+
+        int balance = height[c] - height[b];
+
+        // Rotate C up
+        if (balance > 1) {
+            int f = child1[c];
+            int g = child2[c];
+
+            child1[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+
+            return c;
+        }
+
+        // Rotate B up
+        if (balance < -1) {
+            int d = child1[b];
+            int e = child2[b];
+
+            child1[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+
+            return b;
+        }
+
+        return a;
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL) {
+            root = newChild;
+        } else if (child1[node] == oldChild) {
+            child1[node] = newChild;
+        } else {
+            child2[node] = newChild;
+        }
+    }
+
+    private double descendCost(int child, int leaf) {
+        if (child1[child] == NULL) {
+            return unionPerimeter(child, leaf);
+        }
+
+        return unionPerimeter(child, leaf) - perimeter(child);
+    }
+
+    private double perimeter(int node) {
+        return 2 * ((maxX[node] - minX[node]) + (maxY[node] - minY[node]));
+    }
+
+    private double unionPerimeter(int a, int b) {
+        double width = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        double height = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        return 2 * (width + height);
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    private void setFat(int node, AABB aabb) {
+        minX[node] = aabb.minX - margin;
+        minY[node] = aabb.minY - margin;
+        maxX[node] = aabb.maxX + margin;
+        maxY[node] = aabb.maxY + margin;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            grow();
+        }
+
+        int node = freeList;
+        freeList = parent[node];
+
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        data[node] = null;
+        freeList = node;
+    }
+
+    private void grow() {
+        int oldCapacity = capacity;
+        capacity *= 2;
+
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+
+        data = Arrays.copyOf(data, capacity);
+
+        linkFreeNodes(oldCapacity);
+    }
+
+    /*
+     * Links the nodes from an index up to the capacity into the free list.
+     */
+    private void linkFreeNodes(int from) {
+        for (int i = from; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+
+        parent[capacity - 1] = NULL;
+        height[capacity - 1] = -1;
+        freeList = from;
+    }
+}
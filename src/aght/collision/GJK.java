@@ -0,0 +1,538 @@
+package aght.collision;
+
+/**
+ * GJK.
+ * <p>
+ * Narrow phase based on the Gilbert-Johnson-Keerthi algorithm, an alternative
+ * to {@link SAT}. It only looks at the convex pieces through their support
+ * points, searching the Minkowski difference of two pieces for the point
+ * closest to the origin, so besides telling whether they collide it finds the
+ * distance between them and their closest points. The penetration of
+ * colliding pieces is found by expanding the final simplex with EPA.
+ * <p>
+ * Touching pieces, whose distance is 0 without overlapping, may be reported
+ * either way. The methods can be called from any thread, every thread has its
+ * own scratch space.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class GJK {
+
+    /*
+     * Minimum number of iterations, the search gets more iterations for
+     * pieces with many vertices.
+     */
+    private static final int MIN_ITERATIONS = 20;
+
+    /*
+     * Squared length below which a search direction is considered 0.
+     */
+    private static final double EPSILON_SQ = 1e-24;
+
+    /*
+     * Relative distance the polytope must grow by for EPA to keep expanding.
+     */
+    private static final double EPA_TOLERANCE = 1e-10;
+
+    /*
+     * Relative size of the cross product below which the origin is taken to
+     * be on the line through a segment, a few times the rounding error.
+     */
+    private static final double LINE_TOLERANCE = 1e-12;
+
+    private static final ThreadLocal<Simplex> SIMPLEX = ThreadLocal
+            .withInitial(Simplex::new);
+
+    /**
+     * Checks if two bodies collide.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @return true if they collide
+     */
+    public static boolean collide(Body a, Body b) {
+        double[][] aPieces = a.getWorldPieces();
+        double[][] bPieces = b.getWorldPieces();
+        double[] aBounds = a.getWorldPieceBounds();
+        double[] bBounds = b.getWorldPieceBounds();
+        Simplex simplex = SIMPLEX.get();
+
+        for (int i = 0; i < aPieces.length; i++) {
+            for (int j = 0; j < bPieces.length; j++) {
+                if (SAT.overlaps(aBounds, 4 * i, bBounds, 4 * j)
+                        && intersects(aPieces[i], bPieces[j], simplex)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the distance between two bodies and their closest points. For
+     * concave bodies this is the smallest distance between any of their
+     * pieces, pairs of pieces whose bounds are further apart than the best
+     * distance so far are skipped.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param result
+     *            the distance to write the result to
+     * @return the distance, 0 if the bodies overlap
+     */
+    public static double distance(Body a, Body b, Distance result) {
+        double[][] aPieces = a.getWorldPieces();
+        double[][] bPieces = b.getWorldPieces();
+        double[] aBounds = a.getWorldPieceBounds();
+        double[] bBounds = b.getWorldPieceBounds();
+        Simplex simplex = SIMPLEX.get();
+
+        result.set(Double.POSITIVE_INFINITY, 0, 0, 0, 0);
+
+        for (int i = 0; i < aPieces.length && result.distance > 0; i++) {
+            for (int j = 0; j < bPieces.length && result.distance > 0; j++) {
+                if (boundsDistanceSq(aBounds, 4 * i, bBounds, 4 * j)
+                        >= result.distance * result.distance) {
+                    continue;
+                }
+
+                solve(aPieces[i], bPieces[j], simplex);
+
+                double distance = simplex.count == 3 ? 0 : simplex.distance;
+                if (distance < result.distance) {
+                    result.set(distance, simplex.pointAX, simplex.pointAY,
+                            simplex.pointBX, simplex.pointBY);
+                }
+            }
+        }
+
+        return result.distance;
+    }
+
+    /**
+     * Checks if two bodies collide, and finds the minimum translation vector
+     * separating them along with up to two contact points, like
+     * {@link SAT#collideWithManifold(Body, Body, Manifold)}.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param result
+     *            the manifold to write the result to
+     * @return true if they collide
+     */
+    public static boolean collideWithManifold(Body a, Body b,
+            Manifold result) {
+
+        result.clear();
+
+        double[][] aPieces = a.getWorldPieces();
+        double[][] bPieces = b.getWorldPieces();
+        double[] aBounds = a.getWorldPieceBounds();
+        double[] bBounds = b.getWorldPieceBounds();
+        Simplex simplex = SIMPLEX.get();
+
+        for (int i = 0; i < aPieces.length; i++) {
+            for (int j = 0; j < bPieces.length; j++) {
+                if (!SAT.overlaps(aBounds, 4 * i, bBounds, 4 * j)
+                        || !intersects(aPieces[i], bPieces[j], simplex)) {
+                    continue;
+                }
+
+                penetration(aPieces[i], bPieces[j], simplex, result.pair);
+
+                double normalX = result.pair[0];
+                double normalY = result.pair[1];
+                double depth = result.pair[2];
+
+                if (!result.colliding || depth > result.depth) {
+                    result.set(normalX, normalY, depth);
+                }
+
+                Clipping.clip(aPieces[i], bPieces[j], normalX, normalY, depth,
+                        i, j, result);
+            }
+        }
+
+        result.reduce();
+
+        return result.colliding;
+    }
+
+    static boolean intersects(double[] a, double[] b, Simplex simplex) {
+        solve(a, b, simplex);
+        return simplex.count == 3;
+    }
+
+    /*
+     * Runs GJK on two convex polygons. Afterwards the simplex holds three
+     * points if the polygons overlap, otherwise the closest points and the
+     * distance between them.
+     */
+    static void solve(double[] a, double[] b, Simplex s) {
+        // Start from a support point, so every point of the simplex is on the
+        // boundary of the difference, which EPA relies on
+        s.set(0, a, support(a, -1, 0), b, support(b, 1, 0));
+        s.count = 1;
+
+        int maxIterations = Math.max(MIN_ITERATIONS,
+                a.length / 2 + b.length / 2);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int saveCount = s.count;
+            for (int i = 0; i < saveCount; i++) {
+                s.savedA[i] = s.indexA[i];
+                s.savedB[i] = s.indexB[i];
+            }
+
+            if (s.count == 2) {
+                solve2(s);
+            } else if (s.count == 3) {
+                solve3(s);
+            }
+
+            // The origin is inside the triangle
+            if (s.count == 3) {
+                break;
+            }
+
+            // Search towards the origin from the closest feature
+            double dirX;
+            double dirY;
+            double edgeX = 0;
+            double edgeY = 0;
+            double sign = 0;
+            double scale = 0;
+            if (s.count == 1) {
+                dirX = -s.wx[0];
+                dirY = -s.wy[0];
+            } else {
+                edgeX = s.wx[1] - s.wx[0];
+                edgeY = s.wy[1] - s.wy[0];
+                sign = edgeX * -s.wy[0] - edgeY * -s.wx[0];
+                scale = Math.sqrt((edgeX * edgeX + edgeY * edgeY)
+                        * (s.wx[0] * s.wx[0] + s.wy[0] * s.wy[0]));
+
+                // The origin is on the segment up to rounding, either
+                // perpendicular can lead back to a point already in the
+                // simplex
+                if (Math.abs(sign) <= LINE_TOLERANCE * scale) {
+                    straddle(a, b, s, edgeX, edgeY);
+                    break;
+                }
+
+                if (sign > 0) {
+                    dirX = -edgeY;
+                    dirY = edgeX;
+                } else {
+                    dirX = edgeY;
+                    dirY = -edgeX;
+                }
+            }
+
+            // The origin is on the simplex
+            if (dirX * dirX + dirY * dirY < EPSILON_SQ) {
+                break;
+            }
+
+            int ia = support(a, -dirX, -dirY);
+            int ib = support(b, dirX, dirY);
+
+            boolean duplicate = false;
+            for (int i = 0; i < saveCount; i++) {
+                if (s.savedA[i] == ia && s.savedB[i] == ib) {
+                    duplicate = true;
+                    break;
+                }
+            }
+
+            // No progress, the closest point was already found, unless the
+            // origin is so close to the segment that the side searched may
+            // just be the wrong one
+            if (duplicate) {
+                if (s.count == 2 && Math.abs(sign) <= EPA_TOLERANCE
+                        * Math.max(scale, Math.sqrt(
+                                edgeX * edgeX + edgeY * edgeY))) {
+                    straddle(a, b, s, edgeX, edgeY);
+                }
+                break;
+            }
+
+            s.set(s.count, a, ia, b, ib);
+            s.count++;
+        }
+
+        witnessPoints(s);
+    }
+
+    /*
+     * Handles the origin lying on the segment of the simplex. The polygons
+     * overlap if the difference reaches past the segment on both sides, then
+     * the point on one side completes a triangle for EPA, with the origin on
+     * its edge, and the witness point stays on the segment. Otherwise the
+     * origin is on the boundary, the polygons only touch and the segment is
+     * kept, at distance 0.
+     */
+    private static void straddle(double[] a, double[] b, Simplex s,
+            double edgeX, double edgeY) {
+        double tolerance = EPA_TOLERANCE
+                * Math.max(1, Math.sqrt(edgeX * edgeX + edgeY * edgeY));
+
+        int ia = support(a, edgeY, -edgeX);
+        int ib = support(b, -edgeY, edgeX);
+        double left = -edgeY * (b[2 * ib] - a[2 * ia] - s.wx[0])
+                + edgeX * (b[2 * ib + 1] - a[2 * ia + 1] - s.wy[0]);
+
+        int oppositeA = support(a, -edgeY, edgeX);
+        int oppositeB = support(b, edgeY, -edgeX);
+        double right = edgeY
+                * (b[2 * oppositeB] - a[2 * oppositeA] - s.wx[0])
+                - edgeX * (b[2 * oppositeB + 1] - a[2 * oppositeA + 1]
+                        - s.wy[0]);
+
+        if (left > tolerance && right > tolerance) {
+            s.set(2, a, ia, b, ib);
+            s.weight[2] = 0;
+            s.count = 3;
+        }
+    }
+
+    /*
+     * Reduces a segment to the feature closest to the origin, Voronoi regions
+     * of its vertices and of the segment itself.
+     */
+    private static void solve2(Simplex s) {
+        double edgeX = s.wx[1] - s.wx[0];
+        double edgeY = s.wy[1] - s.wy[0];
+
+        double d2 = -(s.wx[0] * edgeX + s.wy[0] * edgeY);
+        if (d2 <= 0) {
+            s.weight[0] = 1;
+            s.count = 1;
+            return;
+        }
+
+        double d1 = s.wx[1] * edgeX + s.wy[1] * edgeY;
+        if (d1 <= 0) {
+            s.copy(0, 1);
+            s.weight[0] = 1;
+            s.count = 1;
+            return;
+        }
+
+        double inv = 1 / (d1 + d2);
+        s.weight[0] = d1 * inv;
+        s.weight[1] = d2 * inv;
+        s.count = 2;
+    }
+
+    /*
+     * Reduces a triangle to the feature closest to the origin, Voronoi regions
+     * of its vertices, edges and of the triangle itself.
+     */
+    private static void solve3(Simplex s) {
+        double x1 = s.wx[0];
+        double y1 = s.wy[0];
+        double x2 = s.wx[1];
+        double y2 = s.wy[1];
+        double x3 = s.wx[2];
+        double y3 = s.wy[2];
+
+        double e12x = x2 - x1;
+        double e12y = y2 - y1;
+        double d12_1 = x2 * e12x + y2 * e12y;
+        double d12_2 = -(x1 * e12x + y1 * e12y);
+
+        double e13x = x3 - x1;
+        double e13y = y3 - y1;
+        double d13_1 = x3 * e13x + y3 * e13y;
+        double d13_2 = -(x1 * e13x + y1 * e13y);
+
+        double e23x = x3 - x2;
+        double e23y = y3 - y2;
+        double d23_1 = x3 * e23x + y3 * e23y;
+        double d23_2 = -(x2 * e23x + y2 * e23y);
+
+        double n123 = e12x * e13y - e12y * e13x;
+        double d123_1 = n123 * (x2 * y3 - y2 * x3);
+        double d123_2 = n123 * (x3 * y1 - y3 * x1);
+        double d123_3 = n123 * (x1 * y2 - y1 * x2);
+
+        if (d12_2 <= 0 && d13_2 <= 0) {
+            s.weight[0] = 1;
+            s.count = 1;
+        } else if (d12_1 > 0 && d12_2 > 0 && d123_3 <= 0) {
+            double inv = 1 / (d12_1 + d12_2);
+            s.weight[0] = d12_1 * inv;
+            s.weight[1] = d12_2 * inv;
+            s.count = 2;
+        } else if (d13_1 > 0 && d13_2 > 0 && d123_2 <= 0) {
+            double inv = 1 / (d13_1 + d13_2);
+            s.copy(1, 2);
+            s.weight[0] = d13_1 * inv;
+            s.weight[1] = d13_2 * inv;
+            s.count = 2;
+        } else if (d12_1 <= 0 && d23_2 <= 0) {
+            s.copy(0, 1);
+            s.weight[0] = 1;
+            s.count = 1;
+        } else if (d13_1 <= 0 && d23_1 <= 0) {
+            s.copy(0, 2);
+            s.weight[0] = 1;
+            s.count = 1;
+        } else if (d23_1 > 0 && d23_2 > 0 && d123_1 <= 0) {
+            double inv = 1 / (d23_1 + d23_2);
+            s.copy(0, 2);
+            s.weight[0] = d23_2 * inv;
+            s.weight[1] = d23_1 * inv;
+            s.count = 2;
+        } else {
+            double inv = 1 / (d123_1 + d123_2 + d123_3);
+            s.weight[0] = d123_1 * inv;
+            s.weight[1] = d123_2 * inv;
+            s.weight[2] = d123_3 * inv;
+            s.count = 3;
+        }
+    }
+
+    private static void witnessPoints(Simplex s) {
+        double ax = 0;
+        double ay = 0;
+        double bx = 0;
+        double by = 0;
+
+        for (int i = 0; i < s.count; i++) {
+            ax += s.weight[i] * s.wAx[i];
+            ay += s.weight[i] * s.wAy[i];
+            bx += s.weight[i] * s.wBx[i];
+            by += s.weight[i] * s.wBy[i];
+        }
+
+        if (s.count == 3) {
+            bx = ax;
+            by = ay;
+        }
+
+        s.pointAX = ax;
+        s.pointAY = ay;
+        s.pointBX = bx;
+        s.pointBY = by;
+        s.distance = Math.sqrt((bx - ax) * (bx - ax) + (by - ay) * (by - ay));
+    }
+
+    /*
+     * Expanding Polytope Algorithm: grows the triangle left by GJK towards
+     * the boundary of the Minkowski difference until the edge closest to the
+     * origin is on the boundary. Writes the normal, pointing from a to b, and
+     * the depth to the result.
+     */
+    static void penetration(double[] a, double[] b, Simplex s,
+            double[] result) {
+
+        s.polytopeCount = 0;
+        for (int i = 0; i < 3; i++) {
+            s.insertPolytope(i, s.wx[i], s.wy[i]);
+        }
+
+        double area = (s.wx[1] - s.wx[0]) * (s.wy[2] - s.wy[0])
+                - (s.wy[1] - s.wy[0]) * (s.wx[2] - s.wx[0]);
+        if (area < 0) {
+            s.polytopeX[1] = s.wx[2];
+            s.polytopeY[1] = s.wy[2];
+            s.polytopeX[2] = s.wx[1];
+            s.polytopeY[2] = s.wy[1];
+        }
+
+        int maxIterations = MIN_ITERATIONS + a.length / 2 + b.length / 2;
+
+        double normalX = 0;
+        double normalY = 0;
+        double depth = 0;
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int count = s.polytopeCount;
+            int closest = -1;
+            depth = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < count; i++) {
+                int j = i + 1 == count ? 0 : i + 1;
+                double edgeX = s.polytopeX[j] - s.polytopeX[i];
+                double edgeY = s.polytopeY[j] - s.polytopeY[i];
+                double length = Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+
+                if (length == 0) {
+                    continue;
+                }
+
+                // Outward normal of a counter clockwise edge
+                double nx = edgeY / length;
+                double ny = -edgeX / length;
+                double distance = nx * s.polytopeX[i] + ny * s.polytopeY[i];
+
+                if (distance < depth) {
+                    depth = distance;
+                    normalX = nx;
+                    normalY = ny;
+                    closest = i;
+                }
+            }
+
+            if (closest == -1) {
+                break;
+            }
+
+            int ia = support(a, -normalX, -normalY);
+            int ib = support(b, normalX, normalY);
+            double wx = b[2 * ib] - a[2 * ia];
+            double wy = b[2 * ib + 1] - a[2 * ia + 1];
+            double reach = normalX * wx + normalY * wy;
+
+            if (reach - depth <= EPA_TOLERANCE * Math.max(1, reach)) {
+                break;
+            }
+
+            s.insertPolytope(closest + 1, wx, wy);
+        }
+
+        // The difference is b - a, b leaves it by moving against the normal
+        // of the closest edge
+        result[0] = -normalX;
+        result[1] = -normalY;
+        result[2] = Math.max(0, depth);
+    }
+
+    /*
+     * Finds the vertex of a convex polygon furthest along a direction.
+     */
+    static int support(double[] v, double dirX, double dirY) {
+        int best = 0;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < v.length; i += 2) {
+            double dot = dirX * v[i] + dirY * v[i + 1];
+            if (dot > max) {
+                max = dot;
+                best = i / 2;
+            }
+        }
+
+        return best;
+    }
+
+    private static double boundsDistanceSq(double[] a, int i, double[] b,
+            int j) {
+
+        double dx = Math.max(0, Math.max(a[i] - b[j + 2], b[j] - a[i + 2]));
+        double dy = Math.max(0,
+                Math.max(a[i + 1] - b[j + 3], b[j + 1] - a[i + 3]));
+
+        return dx * dx + dy * dy;
+    }
+}
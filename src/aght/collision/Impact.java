@@ -0,0 +1,80 @@
+package aght.collision;
+
+import aght.math.Vector2d;
+
+/**
+ * Impact.
+ * <p>
+ * Result of a time of impact query between two moving bodies: the fraction of
+ * the motion at which they first touch, the contact normal at that moment,
+ * pointing from the first body to the second, and the contact point. An
+ * impact can be reused between queries to avoid allocation.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class Impact {
+
+    double time;
+
+    double normalX;
+    double normalY;
+
+    double pointX;
+    double pointY;
+
+    void set(double time, double normalX, double normalY, double pointX,
+            double pointY) {
+
+        this.time = time;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.pointX = pointX;
+        this.pointY = pointY;
+    }
+
+    /**
+     * Gets the time of impact, from 0 at the start poses to 1 at the end
+     * poses. A time of 0 means the bodies already overlapped at the start.
+     *
+     * @return the time of impact
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public double getNormalX() {
+        return normalX;
+    }
+
+    public double getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * Gets the contact normal, pointing from the first body to the second.
+     *
+     * @return new Vector2d object holding the normal
+     */
+    public Vector2d getNormal() {
+        return new Vector2d(normalX, normalY);
+    }
+
+    public double getPointX() {
+        return pointX;
+    }
+
+    public double getPointY() {
+        return pointY;
+    }
+
+    /**
+     * Gets the contact point, halfway between the closest points of both
+     * bodies at the time of impact.
+     *
+     * @return new Vector2d object holding the point
+     */
+    public Vector2d getPoint() {
+        return new Vector2d(pointX, pointY);
+    }
+}
@@ -0,0 +1,15 @@
+package aght.collision;
+
+/**
+ * ImpactCallback.
+ * <p>
+ * Receives pairs of moving bodies that touch during their motion, together
+ * with their first contact.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public interface ImpactCallback {
+
+    void impact(Body a, Body b, Impact impact);
+}
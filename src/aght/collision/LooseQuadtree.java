@@ -0,0 +1,373 @@
+package aght.collision;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * LooseQuadtree.
+ * <p>
+ * Spatial index answering which bodies overlap a region or contain a point,
+ * for picking, culling and sensors. The tree covers a fixed square area, every
+ * node's bounds are loosened to twice the size of its cell, so a body can be
+ * placed in a single node chosen from its size and center, without splitting
+ * or moving it around as it goes over cell borders. Bodies outside the area
+ * are kept in the root.
+ * <p>
+ * The nodes are implicit, stored level by level in flat arrays, and queries
+ * walk them with a stack owned by the tree and report results to a callback,
+ * so they do not allocate. A tree must not be queried from more than one
+ * thread at a time, and not modified from inside a callback.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class LooseQuadtree {
+
+    private static final int EMPTY = -1;
+
+    private final double originX;
+    private final double originY;
+    private final double size;
+    private final int maxDepth;
+
+    /*
+     * Index of the first node of every level, nodes of a level are stored row
+     * by row.
+     */
+    private final int[] levelOffset;
+
+    /*
+     * First body of every node and number of bodies in the subtree of every
+     * node.
+     */
+    private final int[] head;
+    private final int[] count;
+
+    private Body[] bodies = new Body[16];
+    private int bodyCount;
+
+    /*
+     * Node and doubly linked list links of every body.
+     */
+    private int[] node = new int[16];
+    private int[] next = new int[16];
+    private int[] prev = new int[16];
+
+    /*
+     * Traversal stack holding depth, cell x and cell y of every node.
+     */
+    private int[] stack;
+
+    private final double[] region = new double[8];
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param bounds
+     *            the area covered by the tree, extended to a square
+     * @param maxDepth
+     *            the depth of the smallest nodes
+     */
+    public LooseQuadtree(AABB bounds, int maxDepth) {
+        if (maxDepth < 0 || maxDepth > 12) {
+            throw new IllegalArgumentException(
+                    "The depth must be between 0 and 12.");
+        }
+
+        this.originX = bounds.minX;
+        this.originY = bounds.minY;
+        this.size = Math.max(bounds.maxX - bounds.minX,
+                bounds.maxY - bounds.minY);
+        this.maxDepth = maxDepth;
+
+        levelOffset = new int[maxDepth + 2];
+        for (int d = 1; d < levelOffset.length; d++) {
+            levelOffset[d] = levelOffset[d - 1] + (1 << (2 * (d - 1)));
+        }
+
+        int nodes = levelOffset[maxDepth + 1];
+        head = new int[nodes];
+        count = new int[nodes];
+        Arrays.fill(head, EMPTY);
+
+        stack = new int[3 * (3 * maxDepth + 1)];
+    }
+
+    /**
+     * Replaces the contents of the tree with a set of bodies.
+     *
+     * @param bodies
+     *            the bodies to insert
+     */
+    public void build(Collection<Body> bodies) {
+        clear();
+        for (Body body : bodies) {
+            add(body);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(head, EMPTY);
+        Arrays.fill(count, 0);
+
+        for (int i = 0; i < bodyCount; i++) {
+            bodies[i] = null;
+        }
+        bodyCount = 0;
+    }
+
+    public void add(Body body) {
+        if (bodyCount == bodies.length) {
+            grow();
+        }
+
+        int index = bodyCount++;
+        bodies[index] = body;
+        link(index, nodeOf(body.getAABB()));
+    }
+
+    public boolean remove(Body body) {
+        for (int i = 0; i < bodyCount; i++) {
+            if (bodies[i] == body) {
+                unlink(i);
+
+                // Move the last body into the freed index
+                int last = --bodyCount;
+                if (i != last) {
+                    int lastNode = node[last];
+                    unlink(last);
+                    bodies[i] = bodies[last];
+                    link(i, lastNode);
+                }
+                bodies[last] = null;
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return bodyCount;
+    }
+
+    /**
+     * Moves the bodies whose node changed since the last update.
+     */
+    public void update() {
+        for (int i = 0; i < bodyCount; i++) {
+            int target = nodeOf(bodies[i].getAABB());
+
+            if (target != node[i]) {
+                unlink(i);
+                link(i, target);
+            }
+        }
+    }
+
+    /**
+     * Reports every body overlapping a rectangle. Bodies whose bounds overlap
+     * the rectangle are checked with {@link SAT}.
+     *
+     * @param rect
+     *            the rectangle to search
+     * @param callback
+     *            the callback receiving the bodies
+     */
+    public void queryRegion(AABB rect, BodyCallback callback) {
+        region[0] = rect.minX;
+        region[1] = rect.minY;
+        region[2] = rect.maxX;
+        region[3] = rect.minY;
+        region[4] = rect.maxX;
+        region[5] = rect.maxY;
+        region[6] = rect.minX;
+        region[7] = rect.maxY;
+
+        query(rect.minX, rect.minY, rect.maxX, rect.maxY, callback, true);
+    }
+
+    /**
+     * Reports every body containing a point.
+     *
+     * @param x
+     *            x component of the point
+     * @param y
+     *            y component of the point
+     * @param callback
+     *            the callback receiving the bodies
+     */
+    public void queryPoint(double x, double y, BodyCallback callback) {
+        query(x, y, x, y, callback, false);
+    }
+
+    private void query(double qMinX, double qMinY, double qMaxX, double qMaxY,
+            BodyCallback callback, boolean isRegion) {
+
+        int top = 0;
+        top = push(top, 0, 0, 0);
+
+        while (top > 0) {
+            top -= 3;
+            int depth = stack[top];
+            int cx = stack[top + 1];
+            int cy = stack[top + 2];
+            int n = index(depth, cx, cy);
+
+            for (int i = head[n]; i != EMPTY; i = next[i]) {
+                Body body = bodies[i];
+
+                if (!body.getAABB().intersects(qMinX, qMinY, qMaxX, qMaxY)) {
+                    continue;
+                }
+
+                if (isRegion ? SAT.collide(body, region)
+                        : body.contains(qMinX, qMinY)) {
+                    callback.visit(body);
+                }
+            }
+
+            if (depth == maxDepth) {
+                continue;
+            }
+
+            double cellSize = size / (1 << (depth + 1));
+
+            for (int child = 0; child < 4; child++) {
+                int childX = 2 * cx + (child & 1);
+                int childY = 2 * cy + (child >> 1);
+
+                if (count[index(depth + 1, childX, childY)] == 0) {
+                    continue;
+                }
+
+                // Loose bounds extend half a cell past every side
+                double minX = originX + (childX - 0.5) * cellSize;
+                double minY = originY + (childY - 0.5) * cellSize;
+                double maxX = minX + 2 * cellSize;
+                double maxY = minY + 2 * cellSize;
+
+                if (minX <= qMaxX && maxX >= qMinX && minY <= qMaxY
+                        && maxY >= qMinY) {
+                    top = push(top, depth + 1, childX, childY);
+                }
+            }
+        }
+    }
+
+    private int push(int top, int depth, int cx, int cy) {
+        if (top + 3 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+
+        stack[top] = depth;
+        stack[top + 1] = cx;
+        stack[top + 2] = cy;
+
+        return top + 3;
+    }
+
+    /*
+     * Picks the deepest node whose cell is at least as large as the bounds,
+     * using the cell containing the center of the bounds. Bounds not contained
+     * in the loose bounds of that node go to the root.
+     */
+    private int nodeOf(AABB box) {
+        double extent = Math.max(box.maxX - box.minX, box.maxY - box.minY);
+
+        int depth = maxDepth;
+        if (extent > 0) {
+            depth = (int) Math.floor(Math.log(size / extent) / Math.log(2));
+            depth = Math.max(0, Math.min(maxDepth, depth));
+        }
+
+        if (depth == 0) {
+            return 0;
+        }
+
+        double cellSize = size / (1 << depth);
+        double centerX = (box.minX + box.maxX) / 2;
+        double centerY = (box.minY + box.maxY) / 2;
+
+        int cx = (int) Math.floor((centerX - originX) / cellSize);
+        int cy = (int) Math.floor((centerY - originY) / cellSize);
+        int cells = 1 << depth;
+
+        if (cx < 0 || cy < 0 || cx >= cells || cy >= cells) {
+            return 0;
+        }
+
+        double minX = originX + (cx - 0.5) * cellSize;
+        double minY = originY + (cy - 0.5) * cellSize;
+
+        if (box.minX < minX || box.minY < minY
+                || box.maxX > minX + 2 * cellSize
+                || box.maxY > minY + 2 * cellSize) {
+            return 0;
+        }
+
+        return index(depth, cx, cy);
+    }
+
+    private int index(int depth, int cx, int cy) {
+        return levelOffset[depth] + (cy << depth) + cx;
+    }
+
+    private void link(int i, int n) {
+        node[i] = n;
+        prev[i] = EMPTY;
+        next[i] = head[n];
+        if (head[n] != EMPTY) {
+            prev[head[n]] = i;
+        }
+        head[n] = i;
+
+        addCount(n, 1);
+    }
+
+    private void unlink(int i) {
+        int n = node[i];
+
+        if (prev[i] != EMPTY) {
+            next[prev[i]] = next[i];
+        } else {
+            head[n] = next[i];
+        }
+
+        if (next[i] != EMPTY) {
+            prev[next[i]] = prev[i];
+        }
+
+        addCount(n, -1);
+    }
+
+    /*
+     * Adds to the subtree counts of a node and all of its ancestors.
+     */
+    private void addCount(int n, int amount) {
+        int depth = 0;
+        while (depth < maxDepth && n >= levelOffset[depth + 1]) {
+            depth++;
+        }
+
+        int local = n - levelOffset[depth];
+        int cx = local & ((1 << depth) - 1);
+        int cy = local >> depth;
+
+        for (; depth >= 0; depth--) {
+            count[index(depth, cx, cy)] += amount;
+            cx >>= 1;
+            cy >>= 1;
+        }
+    }
+
+    private void grow() {
+        int capacity = bodies.length * 2;
+
+        bodies = Arrays.copyOf(bodies, capacity);
+        node = Arrays.copyOf(node, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,219 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+import aght.math.Vector2d;
+
+/**
+ * Manifold.
+ * <p>
+ * Result of a collision query between two bodies, holding the minimum
+ * translation vector: the contact normal, a unit vector pointing from the
+ * first body to the second, and the penetration depth along it. Moving the
+ * second body by normal * depth, or the first by -normal * depth, separates
+ * them. A manifold can be reused between queries to avoid allocation.
+ * <p>
+ * When filled by {@link SAT#collideWithManifold(Body, Body, Manifold)} it also
+ * holds up to two contact points, each with its own depth and an id naming the
+ * pieces and edges that produced it. The id stays the same while the bodies
+ * keep touching through the same features, so a solver can match contacts
+ * between steps to warm start.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class Manifold {
+
+    /**
+     * Maximum number of contact points in a manifold.
+     */
+    public static final int MAX_POINTS = 2;
+
+    boolean colliding;
+
+    double normalX;
+    double normalY;
+
+    double depth;
+
+    int pointCount;
+    final double[] pointX = new double[MAX_POINTS];
+    final double[] pointY = new double[MAX_POINTS];
+    final double[] pointDepth = new double[MAX_POINTS];
+    final long[] pointId = new long[MAX_POINTS];
+
+    /*
+     * Contact points of every colliding pair of pieces, before they are
+     * reduced to the final points.
+     */
+    int candidateCount;
+    double[] candidateX = new double[4];
+    double[] candidateY = new double[4];
+    double[] candidateDepth = new double[4];
+    long[] candidateId = new long[4];
+
+    /*
+     * Scratch space for the narrow phase, the normal and depth of one pair of
+     * pieces and the clipped incident edge.
+     */
+    final double[] pair = new double[3];
+    final double[] clipX = new double[2];
+    final double[] clipY = new double[2];
+    final int[] clipFeature = new int[2];
+
+    void clear() {
+        colliding = false;
+        normalX = 0;
+        normalY = 0;
+        depth = 0;
+        pointCount = 0;
+        candidateCount = 0;
+    }
+
+    void set(double normalX, double normalY, double depth) {
+        this.colliding = true;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.depth = depth;
+    }
+
+    void addCandidate(double x, double y, double depth, long id) {
+        if (candidateCount == candidateX.length) {
+            int capacity = candidateCount * 2;
+            candidateX = Arrays.copyOf(candidateX, capacity);
+            candidateY = Arrays.copyOf(candidateY, capacity);
+            candidateDepth = Arrays.copyOf(candidateDepth, capacity);
+            candidateId = Arrays.copyOf(candidateId, capacity);
+        }
+
+        candidateX[candidateCount] = x;
+        candidateY[candidateCount] = y;
+        candidateDepth[candidateCount] = depth;
+        candidateId[candidateCount] = id;
+        candidateCount++;
+    }
+
+    /*
+     * Reduces the candidates to the final points, keeping the deepest point
+     * and the point furthest away from it.
+     */
+    void reduce() {
+        if (candidateCount <= MAX_POINTS) {
+            for (int i = 0; i < candidateCount; i++) {
+                setPoint(i, i);
+            }
+            pointCount = candidateCount;
+            return;
+        }
+
+        int deepest = 0;
+        for (int i = 1; i < candidateCount; i++) {
+            if (candidateDepth[i] > candidateDepth[deepest]) {
+                deepest = i;
+            }
+        }
+
+        int furthest = deepest == 0 ? 1 : 0;
+        double furthestDistSq = -1;
+        for (int i = 0; i < candidateCount; i++) {
+            if (i == deepest) {
+                continue;
+            }
+
+            double dx = candidateX[i] - candidateX[deepest];
+            double dy = candidateY[i] - candidateY[deepest];
+            double distSq = dx * dx + dy * dy;
+
+            if (distSq > furthestDistSq) {
+                furthestDistSq = distSq;
+                furthest = i;
+            }
+        }
+
+        setPoint(0, deepest);
+        setPoint(1, furthest);
+        pointCount = 2;
+    }
+
+    private void setPoint(int point, int candidate) {
+        pointX[point] = candidateX[candidate];
+        pointY[point] = candidateY[candidate];
+        pointDepth[point] = candidateDepth[candidate];
+        pointId[point] = candidateId[candidate];
+    }
+
+    public boolean isColliding() {
+        return colliding;
+    }
+
+    public double getNormalX() {
+        return normalX;
+    }
+
+    public double getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * Gets the contact normal, pointing from the first body to the second.
+     *
+     * @return new Vector2d object holding the normal
+     */
+    public Vector2d getNormal() {
+        return new Vector2d(normalX, normalY);
+    }
+
+    public double getDepth() {
+        return depth;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public double getPointX(int i) {
+        return pointX[i];
+    }
+
+    public double getPointY(int i) {
+        return pointY[i];
+    }
+
+    /**
+     * Gets the contact points, halfway between the surfaces of both bodies.
+     *
+     * @return new array holding the contact points
+     */
+    public Vector2d[] getPoints() {
+        Vector2d[] points = new Vector2d[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = new Vector2d(pointX[i], pointY[i]);
+        }
+
+        return points;
+    }
+
+    /**
+     * Gets the penetration depth at a contact point, measured along the normal
+     * of the edge the point was clipped against.
+     *
+     * @param i
+     *            the index of the point
+     * @return the depth at the point
+     */
+    public double getPointDepth(int i) {
+        return pointDepth[i];
+    }
+
+    /**
+     * Gets the id of a contact point. It is built from the pieces of both
+     * bodies and the edges or vertices the point was found on.
+     *
+     * @param i
+     *            the index of the point
+     * @return the id of the point
+     */
+    public long getPointId(int i) {
+        return pointId[i];
+    }
+}
@@ -0,0 +1,153 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+/**
+ * ManifoldBuffer.
+ * <p>
+ * Contact manifolds of a batch of pairs in flat arrays, one entry per pair,
+ * filled by {@link BatchSAT}. Entries of pairs that do not collide have no
+ * points and a depth of 0. Holds the scratch space used to build each
+ * manifold, so a buffer must not be filled from more than one thread at a
+ * time.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class ManifoldBuffer {
+
+    private static final int MAX_POINTS = Manifold.MAX_POINTS;
+
+    double[] normalX;
+    double[] normalY;
+    double[] depth;
+    int[] pointCount;
+
+    double[] pointX;
+    double[] pointY;
+    double[] pointDepth;
+    long[] pointId;
+
+    final Manifold scratch = new Manifold();
+
+    /*
+     * Interleaved copies of the polygons being clipped, one pair of arrays per
+     * vertex count as the clipping takes the count from the length.
+     */
+    private double[][] gatherA = new double[0][];
+    private double[][] gatherB = new double[0][];
+
+    public ManifoldBuffer() {
+        this(64);
+    }
+
+    /**
+     * Creates a buffer.
+     *
+     * @param capacity
+     *            the number of pairs to make room for
+     */
+    public ManifoldBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+
+        normalX = new double[capacity];
+        normalY = new double[capacity];
+        depth = new double[capacity];
+        pointCount = new int[capacity];
+        pointX = new double[capacity * MAX_POINTS];
+        pointY = new double[capacity * MAX_POINTS];
+        pointDepth = new double[capacity * MAX_POINTS];
+        pointId = new long[capacity * MAX_POINTS];
+    }
+
+    /**
+     * Makes room for a number of pairs.
+     *
+     * @param pairs
+     *            the number of pairs
+     */
+    public void ensureCapacity(int pairs) {
+        if (pairs <= normalX.length) {
+            return;
+        }
+
+        int capacity = Math.max(pairs, normalX.length * 2);
+
+        normalX = Arrays.copyOf(normalX, capacity);
+        normalY = Arrays.copyOf(normalY, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+        pointCount = Arrays.copyOf(pointCount, capacity);
+        pointX = Arrays.copyOf(pointX, capacity * MAX_POINTS);
+        pointY = Arrays.copyOf(pointY, capacity * MAX_POINTS);
+        pointDepth = Arrays.copyOf(pointDepth, capacity * MAX_POINTS);
+        pointId = Arrays.copyOf(pointId, capacity * MAX_POINTS);
+    }
+
+    void set(int pair, Manifold m) {
+        normalX[pair] = m.normalX;
+        normalY[pair] = m.normalY;
+        depth[pair] = m.depth;
+        pointCount[pair] = m.pointCount;
+
+        for (int i = 0; i < m.pointCount; i++) {
+            pointX[pair * MAX_POINTS + i] = m.pointX[i];
+            pointY[pair * MAX_POINTS + i] = m.pointY[i];
+            pointDepth[pair * MAX_POINTS + i] = m.pointDepth[i];
+            pointId[pair * MAX_POINTS + i] = m.pointId[i];
+        }
+    }
+
+    double[] gatherA(int n) {
+        if (n >= gatherA.length) {
+            gatherA = Arrays.copyOf(gatherA, n + 1);
+        }
+        if (gatherA[n] == null) {
+            gatherA[n] = new double[2 * n];
+        }
+
+        return gatherA[n];
+    }
+
+    double[] gatherB(int n) {
+        if (n >= gatherB.length) {
+            gatherB = Arrays.copyOf(gatherB, n + 1);
+        }
+        if (gatherB[n] == null) {
+            gatherB[n] = new double[2 * n];
+        }
+
+        return gatherB[n];
+    }
+
+    public double getNormalX(int pair) {
+        return normalX[pair];
+    }
+
+    public double getNormalY(int pair) {
+        return normalY[pair];
+    }
+
+    public double getDepth(int pair) {
+        return depth[pair];
+    }
+
+    public int getPointCount(int pair) {
+        return pointCount[pair];
+    }
+
+    public double getPointX(int pair, int i) {
+        return pointX[pair * MAX_POINTS + i];
+    }
+
+    public double getPointY(int pair, int i) {
+        return pointY[pair * MAX_POINTS + i];
+    }
+
+    public double getPointDepth(int pair, int i) {
+        return pointDepth[pair * MAX_POINTS + i];
+    }
+
+    public long getPointId(int pair, int i) {
+        return pointId[pair * MAX_POINTS + i];
+    }
+}
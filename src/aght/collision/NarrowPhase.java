@@ -0,0 +1,70 @@
+package aght.collision;
+
+/**
+ * NarrowPhase.
+ * <p>
+ * The algorithms that can check a pair of bodies, so one can be picked per
+ * query or for a whole {@link CollisionWorld}. Both give the same answers, up
+ * to touching bodies, but {@link #GJK} only visits the vertices it needs and
+ * scales better with the number of vertices per piece.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public enum NarrowPhase {
+
+    /**
+     * Separating axis theorem, see {@link aght.collision.SAT}.
+     */
+    SAT {
+        @Override
+        public boolean collide(Body a, Body b) {
+            return aght.collision.SAT.collide(a, b);
+        }
+
+        @Override
+        public boolean collideWithManifold(Body a, Body b, Manifold result) {
+            return aght.collision.SAT.collideWithManifold(a, b, result);
+        }
+    },
+
+    /**
+     * Gilbert-Johnson-Keerthi with EPA, see {@link aght.collision.GJK}.
+     */
+    GJK {
+        @Override
+        public boolean collide(Body a, Body b) {
+            return aght.collision.GJK.collide(a, b);
+        }
+
+        @Override
+        public boolean collideWithManifold(Body a, Body b, Manifold result) {
+            return aght.collision.GJK.collideWithManifold(a, b, result);
+        }
+    };
+
+    /**
+     * Checks if two bodies collide.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @return true if they collide
+     */
+    public abstract boolean collide(Body a, Body b);
+
+    /**
+     * Checks if two bodies collide, and finds their contact manifold.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param result
+     *            the manifold to write the result to
+     * @return true if they collide
+     */
+    public abstract boolean collideWithManifold(Body a, Body b,
+            Manifold result);
+}
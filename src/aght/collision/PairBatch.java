@@ -0,0 +1,167 @@
+package aght.collision;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PairBatch.
+ * <p>
+ * The candidate pairs of one query of a {@link CollisionWorld}, checked in
+ * parallel on a fork/join pool. The pairs are gathered first, every body in
+ * them is brought up to date on the calling thread, then the pair list is
+ * split into ranges that are checked concurrently. Each pair writes only to
+ * its own slot of the result arrays, and the results are reported in the
+ * order the pairs were gathered, so the output does not depend on how the
+ * work was scheduled.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+final class PairBatch {
+
+    /**
+     * Number of pairs below which a range is checked without splitting it
+     * further.
+     */
+    private static final int GRAIN = 64;
+
+    private static final int COLLIDE = 0;
+    private static final int CONTACTS = 1;
+    private static final int IMPACTS = 2;
+
+    private Body[] a = new Body[64];
+    private Body[] b = new Body[64];
+    private int count;
+
+    private boolean[] hits = new boolean[64];
+
+    /*
+     * One result object per pair, created on first use and reused by later
+     * queries.
+     */
+    private Manifold[] manifolds = new Manifold[0];
+    private Impact[] impacts = new Impact[0];
+
+    void clear() {
+        count = 0;
+    }
+
+    void add(Body first, Body second) {
+        if (count == a.length) {
+            a = Arrays.copyOf(a, count * 2);
+            b = Arrays.copyOf(b, count * 2);
+            hits = Arrays.copyOf(hits, count * 2);
+        }
+
+        a[count] = first;
+        b[count] = second;
+        count++;
+    }
+
+    void collide(ForkJoinPool pool, NarrowPhase narrow, PairCallback callback) {
+        run(pool, COLLIDE, narrow);
+
+        for (int k = 0; k < count; k++) {
+            if (hits[k]) {
+                callback.pair(a[k], b[k]);
+            }
+        }
+    }
+
+    void findContacts(ForkJoinPool pool, NarrowPhase narrow,
+            ContactCallback callback) {
+
+        if (manifolds.length < count) {
+            int old = manifolds.length;
+            manifolds = Arrays.copyOf(manifolds, a.length);
+            for (int k = old; k < manifolds.length; k++) {
+                manifolds[k] = new Manifold();
+            }
+        }
+
+        run(pool, CONTACTS, narrow);
+
+        for (int k = 0; k < count; k++) {
+            if (hits[k]) {
+                callback.contact(a[k], b[k], manifolds[k]);
+            }
+        }
+    }
+
+    void findImpacts(ForkJoinPool pool, ImpactCallback callback) {
+        if (impacts.length < count) {
+            int old = impacts.length;
+            impacts = Arrays.copyOf(impacts, a.length);
+            for (int k = old; k < impacts.length; k++) {
+                impacts[k] = new Impact();
+            }
+        }
+
+        run(pool, IMPACTS, null);
+
+        for (int k = 0; k < count; k++) {
+            if (hits[k]) {
+                callback.impact(a[k], b[k], impacts[k]);
+            }
+        }
+    }
+
+    private void run(ForkJoinPool pool, int query, NarrowPhase narrow) {
+        // Refresh lazily built state up front, so the tasks only read bodies
+        for (int k = 0; k < count; k++) {
+            a[k].prepare();
+            b[k].prepare();
+        }
+
+        if (count <= GRAIN) {
+            check(query, narrow, 0, count);
+        } else {
+            pool.invoke(new Task(query, narrow, 0, count));
+        }
+    }
+
+    private void check(int query, NarrowPhase narrow, int from, int to) {
+        for (int k = from; k < to; k++) {
+            switch (query) {
+            case COLLIDE:
+                hits[k] = narrow.collide(a[k], b[k]);
+                break;
+            case CONTACTS:
+                hits[k] = narrow.collideWithManifold(a[k], b[k], manifolds[k]);
+                break;
+            default:
+                hits[k] = TimeOfImpact.compute(a[k], b[k], impacts[k]);
+            }
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int query;
+        private final NarrowPhase narrow;
+        private final int from;
+        private final int to;
+
+        Task(int query, NarrowPhase narrow, int from, int to) {
+            this.query = query;
+            this.narrow = narrow;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                check(query, narrow, from, to);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(query, narrow, from, mid),
+                    new Task(query, narrow, mid, to));
+        }
+    }
+}
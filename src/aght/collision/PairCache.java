@@ -0,0 +1,170 @@
+package aght.collision;
+
+/**
+ * PairCache.
+ * <p>
+ * Remembers how the last test of a pair of bodies ended, so the next test of
+ * the same pair can try it first: the axis that separated them, or the pair of
+ * pieces that collided. Bodies rarely move far between steps, so most tests
+ * are answered by a single projection or a single pair of pieces.
+ * <p>
+ * Pairs are keyed by the ids of both bodies. The cache has a fixed capacity
+ * and never allocates after it is created: every pair can only be stored in a
+ * small set of slots picked by its hash, and when they are all taken the least
+ * recently used one is replaced. Entries not used for more than a number of
+ * generations are dropped, call {@link #nextGeneration()} once per step.
+ * <p>
+ * A cache must not be used from more than one thread at a time.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class PairCache {
+
+    static final int NONE = 0;
+    static final int AXIS = 1;
+    static final int PIECES = 2;
+
+    /*
+     * Number of slots a pair can be stored in.
+     */
+    private static final int WAYS = 4;
+
+    private final int mask;
+    private final int maxAge;
+
+    private final long[] keys;
+    private final int[] stamps;
+
+    final int[] kind;
+    final double[] axisX;
+    final double[] axisY;
+    final int[] pieceA;
+    final int[] pieceB;
+
+    private int generation = 1;
+
+    public PairCache() {
+        this(4096, 60);
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity
+     *            the number of pairs the cache can hold, rounded up to a
+     *            power of two
+     * @param maxAge
+     *            the number of generations an unused pair is kept for
+     */
+    public PairCache(int capacity, int maxAge) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "The capacity must be between 1 and 2^30.");
+        }
+
+        if (maxAge < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum age must not be negative.");
+        }
+
+        int size = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+
+        this.mask = size - 1;
+        this.maxAge = maxAge;
+
+        keys = new long[size];
+        stamps = new int[size];
+        kind = new int[size];
+        axisX = new double[size];
+        axisY = new double[size];
+        pieceA = new int[size];
+        pieceB = new int[size];
+    }
+
+    /**
+     * Starts a new generation, ageing every pair by one.
+     */
+    public void nextGeneration() {
+        generation++;
+
+        // Stamps of 0 mark empty slots, start over before they wrap around
+        if (generation == Integer.MAX_VALUE) {
+            clear();
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = 0;
+            kind[i] = NONE;
+        }
+        generation = 1;
+    }
+
+    /**
+     * Finds the slot of a pair and marks it as used.
+     *
+     * @return the slot, or -1 if the pair is not cached
+     */
+    int find(int idA, int idB) {
+        long key = key(idA, idB);
+        int start = hash(key);
+
+        for (int k = 0; k < WAYS; k++) {
+            int slot = (start + k) & mask;
+
+            if (keys[slot] == key && isLive(slot)) {
+                stamps[slot] = generation;
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the slot of a pair, taking a free or the least recently used slot
+     * if it is not cached yet.
+     *
+     * @return the slot
+     */
+    int put(int idA, int idB) {
+        long key = key(idA, idB);
+        int start = hash(key);
+
+        int victim = -1;
+        for (int k = 0; k < WAYS; k++) {
+            int slot = (start + k) & mask;
+
+            if (keys[slot] == key || !isLive(slot)) {
+                victim = slot;
+                break;
+            }
+
+            if (victim == -1 || stamps[slot] < stamps[victim]) {
+                victim = slot;
+            }
+        }
+
+        keys[victim] = key;
+        stamps[victim] = generation;
+        kind[victim] = NONE;
+
+        return victim;
+    }
+
+    private boolean isLive(int slot) {
+        return stamps[slot] != 0 && generation - stamps[slot] <= maxAge;
+    }
+
+    private static long key(int idA, int idB) {
+        return idA < idB ? ((long) idA << 32) | (idB & 0xFFFFFFFFL)
+                : ((long) idB << 32) | (idA & 0xFFFFFFFFL);
+    }
+
+    private int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key >>> 32) & mask;
+    }
+}
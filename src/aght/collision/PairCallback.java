@@ -0,0 +1,14 @@
+package aght.collision;
+
+/**
+ * PairCallback.
+ * <p>
+ * Receives pairs of bodies found by a collision query.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public interface PairCallback {
+
+    void pair(Body a, Body b);
+}
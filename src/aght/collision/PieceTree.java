@@ -0,0 +1,149 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+/**
+ * PieceTree.
+ * <p>
+ * Bounding volume hierarchy over the convex pieces of a concave body. The
+ * shape of the tree is built once from the local space pieces by splitting
+ * them at the median of their centers along the longer axis, then only the
+ * boxes are refit whenever the body moves, which also keeps the tree valid
+ * under rotation and scale.
+ * <p>
+ * Nodes are stored in flat arrays with every child after its parent, so the
+ * boxes can be refit bottom up in a single reverse pass.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+final class PieceTree {
+
+    static final int LEAF = -1;
+
+    final int[] child1;
+    final int[] child2;
+
+    /*
+     * Piece of every leaf.
+     */
+    final int[] piece;
+
+    final double[] minX;
+    final double[] minY;
+    final double[] maxX;
+    final double[] maxY;
+
+    private int nodeCount;
+
+    /**
+     * Builds the tree over a set of pieces.
+     *
+     * @param pieces
+     *            the local space vertices of every piece, interleaved
+     */
+    PieceTree(double[][] pieces) {
+        int nodes = 2 * pieces.length - 1;
+
+        child1 = new int[nodes];
+        child2 = new int[nodes];
+        piece = new int[nodes];
+        minX = new double[nodes];
+        minY = new double[nodes];
+        maxX = new double[nodes];
+        maxY = new double[nodes];
+
+        double[] centerX = new double[pieces.length];
+        double[] centerY = new double[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            double[] p = pieces[i];
+            for (int k = 0; k < p.length; k += 2) {
+                centerX[i] += p[k];
+                centerY[i] += p[k + 1];
+            }
+            centerX[i] /= p.length / 2;
+            centerY[i] /= p.length / 2;
+        }
+
+        int[] order = new int[pieces.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        build(order, 0, order.length, centerX, centerY);
+    }
+
+    private int build(int[] order, int from, int to, double[] centerX,
+            double[] centerY) {
+
+        int node = nodeCount++;
+
+        if (to - from == 1) {
+            child1[node] = LEAF;
+            child2[node] = LEAF;
+            piece[node] = order[from];
+            return node;
+        }
+
+        double loX = Double.POSITIVE_INFINITY;
+        double loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY;
+        double hiY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            loX = Math.min(loX, centerX[order[i]]);
+            loY = Math.min(loY, centerY[order[i]]);
+            hiX = Math.max(hiX, centerX[order[i]]);
+            hiY = Math.max(hiY, centerY[order[i]]);
+        }
+
+        // Sort the range by its longer axis, so each half is a median split
+        final double[] key = hiX - loX >= hiY - loY ? centerX : centerY;
+        Integer[] range = new Integer[to - from];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = order[from + i];
+        }
+        Arrays.sort(range, (i, j) -> Double.compare(key[i], key[j]));
+        for (int i = 0; i < range.length; i++) {
+            order[from + i] = range[i];
+        }
+
+        int mid = (from + to) >>> 1;
+        child1[node] = build(order, from, mid, centerX, centerY);
+        child2[node] = build(order, mid, to, centerX, centerY);
+        piece[node] = LEAF;
+
+        return node;
+    }
+
+    /**
+     * Refits every box to the current bounds of the pieces.
+     *
+     * @param bounds
+     *            the bounds of every piece, as minX, minY, maxX, maxY
+     */
+    void refit(double[] bounds) {
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (child1[node] == LEAF) {
+                int b = 4 * piece[node];
+                minX[node] = bounds[b];
+                minY[node] = bounds[b + 1];
+                maxX[node] = bounds[b + 2];
+                maxY[node] = bounds[b + 3];
+            } else {
+                int c1 = child1[node];
+                int c2 = child2[node];
+                minX[node] = Math.min(minX[c1], minX[c2]);
+                minY[node] = Math.min(minY[c1], minY[c2]);
+                maxX[node] = Math.max(maxX[c1], maxX[c2]);
+                maxY[node] = Math.max(maxY[c1], maxY[c2]);
+            }
+        }
+    }
+
+    boolean overlaps(int node, double qMinX, double qMinY, double qMaxX,
+            double qMaxY) {
+
+        return minX[node] <= qMaxX && maxX[node] >= qMinX
+                && minY[node] <= qMaxY && maxY[node] >= qMinY;
+    }
+}
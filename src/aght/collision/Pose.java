@@ -0,0 +1,60 @@
+package aght.collision;
+
+/**
+ * Pose.
+ * <p>
+ * Immutable snapshot of the position, rotation (degrees) and scale of a
+ * {@link Body}, with the same conventions as the body. Used to describe where
+ * a body starts and ends a motion, and safe to share between threads.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public final class Pose {
+
+    private final double x;
+    private final double y;
+    private final double rotation;
+    private final double scaleX;
+    private final double scaleY;
+
+    public Pose(double x, double y, double rotation) {
+        this(x, y, rotation, 1, 1);
+    }
+
+    public Pose(double x, double y, double rotation, double scaleX,
+            double scaleY) {
+
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getRotation() {
+        return rotation;
+    }
+
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    public double getScaleY() {
+        return scaleY;
+    }
+
+    @Override
+    public String toString() {
+        return "Pose(" + x + ", " + y + ", " + rotation + ", " + scaleX
+                + ", " + scaleY + ")";
+    }
+}
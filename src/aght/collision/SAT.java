@@ -1,70 +1,575 @@
 package aght.collision;
 
-import aght.math.Vector2d;
-import aght.shape.Shape;
-import aght.shape.decomposition.PolyDecompose;
-import aght.shape.*;
-
 /**
  * SAT.
+ * <p>
+ * Holds no state of its own, so the methods can be called from any thread as
+ * long as the bodies follow the rules of {@link Body}: not changed while they
+ * are queried, and prepared first when they are shared. A {@link PairCache}
+ * is not synchronized and must not be shared between threads.
  *
  * @author Andy Tang
  * @version 2018
  */
 public class SAT {
 
-    private static PolyDecompose decomposer = new PolyDecompose();
+    /*
+     * Number of vertices from which convex bodies are projected through
+     * their support points instead of vertex by vertex.
+     */
+    static final int SUPPORT_MIN_VERTICES = 16;
+
+    /*
+     * Per thread buffers for the pieces of two bodies moved to given poses.
+     */
+    private static final ThreadLocal<double[][][]> POSE_BUFFERS = ThreadLocal
+            .withInitial(() -> new double[2][][]);
 
-    public static boolean collide(Shape a, Shape b) {
-        return convexConvex(a, b);
+    /**
+     * Checks if two bodies collide. Convex bodies are tested as a whole, only
+     * concave bodies are tested piece by piece.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @return true if they collide
+     */
+    public static boolean collide(Body a, Body b) {
+        return findCollision(a, b) != -1;
     }
 
-    private static boolean convexConvex(Shape p1, Shape p2) {
-        Vector2d[][] p1Decomp = decomposer.triangulate(p1.getVertices());
-        Vector2d[][] p2Decomp = decomposer.triangulate(p2.getVertices());
-        
-        for (Vector2d[] p1Vertices : p1Decomp) {
-            for (Vector2d[] p2Vertices : p2Decomp) {
-                boolean collide = checkCollision(p1Vertices, p2Vertices);
-                
-                if (collide) {
+    /**
+     * Checks if two bodies would collide in the given poses, without moving
+     * them. Only the vertices and pieces of the bodies are read, so the poses
+     * can be snapshots taken while the bodies keep moving on another thread,
+     * see {@link Body#getPose()}.
+     *
+     * @param a
+     *            the first body
+     * @param aPose
+     *            the pose of the first body
+     * @param b
+     *            the second body
+     * @param bPose
+     *            the pose of the second body
+     * @return true if they collide
+     */
+    public static boolean collide(Body a, Pose aPose, Body b, Pose bPose) {
+        double[][][] buffers = POSE_BUFFERS.get();
+        double[][] aPieces = buffers[0] = a.pieceBuffers(buffers[0]);
+        double[][] bPieces = buffers[1] = b.pieceBuffers(buffers[1]);
+
+        a.getWorldPieces(aPose.getX(), aPose.getY(), aPose.getRotation(),
+                aPose.getScaleX(), aPose.getScaleY(), aPieces);
+        b.getWorldPieces(bPose.getX(), bPose.getY(), bPose.getRotation(),
+                bPose.getScaleX(), bPose.getScaleY(), bPieces);
+
+        for (double[] aPiece : aPieces) {
+            for (double[] bPiece : bPieces) {
+                if (checkCollision(aPiece, bPiece)) {
                     return true;
                 }
             }
         }
-        
+
         return false;
     }
 
-    private static boolean checkCollision(Vector2d[] aVertices,
-            Vector2d[] bVertices) {
+    /**
+     * Checks if two bodies collide, trying first how the last check of the
+     * same pair ended: if an axis separated them it is projected on before
+     * anything else, and if a pair of pieces collided that pair is checked
+     * first.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param cache
+     *            the cache holding the result of the last check of every pair
+     * @return true if they collide
+     */
+    public static boolean collide(Body a, Body b, PairCache cache) {
+        // Keep the pieces in the same order however the pair is passed
+        if (a.getId() > b.getId()) {
+            Body swap = a;
+            a = b;
+            b = swap;
+        }
+
+        int slot = cache.find(a.getId(), b.getId());
+
+        if (slot != -1 && cache.kind[slot] == PairCache.AXIS
+                && separatingAxis(a.getWorldVertices(), b.getWorldVertices(),
+                        cache.axisX[slot], cache.axisY[slot])) {
+            return false;
+        }
+
+        if (slot != -1 && cache.kind[slot] == PairCache.PIECES) {
+            double[][] aPieces = a.getWorldPieces();
+            double[][] bPieces = b.getWorldPieces();
+            int i = cache.pieceA[slot];
+            int j = cache.pieceB[slot];
+
+            if (i < aPieces.length && j < bPieces.length
+                    && checkCollision(aPieces[i], a.getWorldAxes()[i],
+                            bPieces[j], b.getWorldAxes()[j])) {
+                return true;
+            }
+        }
+
+        if (a.isConvex() && b.isConvex()) {
+            double[] aVertices = a.getWorldVertices();
+            double[] bVertices = b.getWorldVertices();
+            int edge = separatingEdge(aVertices, bVertices);
+
+            slot = cache.put(a.getId(), b.getId());
+
+            if (edge == -1) {
+                cache.kind[slot] = PairCache.PIECES;
+                cache.pieceA[slot] = 0;
+                cache.pieceB[slot] = 0;
+                return true;
+            }
+
+            // Edge indices past the first polygon belong to the second
+            double[] edges = aVertices;
+            if (edge >= aVertices.length) {
+                edges = bVertices;
+                edge -= aVertices.length;
+            }
+            int prev = edge == 0 ? edges.length - 2 : edge - 2;
+
+            cache.kind[slot] = PairCache.AXIS;
+            cache.axisX[slot] = edges[edge + 1] - edges[prev + 1];
+            cache.axisY[slot] = edges[prev] - edges[edge];
+            return false;
+        }
+
+        long pieces = findCollision(a, b);
+        slot = cache.put(a.getId(), b.getId());
+
+        if (pieces == -1) {
+            // Concave bodies may not have a single separating axis
+            return false;
+        }
+
+        cache.kind[slot] = PairCache.PIECES;
+        cache.pieceA[slot] = (int) (pieces >>> 32);
+        cache.pieceB[slot] = (int) pieces;
+        return true;
+    }
+
+    /**
+     * Checks if a body collides with a convex polygon.
+     *
+     * @param a
+     *            the body
+     * @param polygon
+     *            the vertices of a convex polygon in world space, interleaved
+     *            as x0, y0, x1, y1, ...
+     * @return true if they collide
+     */
+    public static boolean collide(Body a, double[] polygon) {
+        if (a.isConvex()) {
+            return checkCollision(a.getWorldVertices(), polygon);
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < polygon.length; i += 2) {
+            minX = Math.min(minX, polygon[i]);
+            minY = Math.min(minY, polygon[i + 1]);
+            maxX = Math.max(maxX, polygon[i]);
+            maxY = Math.max(maxY, polygon[i + 1]);
+        }
+
+        return convexConcave(polygon, null, minX, minY, maxX, maxY,
+                a) != -1;
+    }
+
+    /**
+     * Checks if two bodies collide, and finds the minimum translation vector
+     * separating them.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @return new Manifold object holding the result
+     */
+    public static Manifold collideWithManifold(Body a, Body b) {
+        Manifold manifold = new Manifold();
+        collideWithManifold(a, b, manifold);
+        return manifold;
+    }
+
+    /**
+     * Checks if two bodies collide, and finds the minimum translation vector
+     * separating them along with up to two contact points. For concave bodies
+     * the vector of the most deeply overlapping pair of pieces is used, and
+     * the contact points of all overlapping pairs of pieces are reduced to the
+     * deepest point and the point furthest away from it.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param result
+     *            the manifold to write the result to
+     * @return true if they collide
+     */
+    public static boolean collideWithManifold(Body a, Body b,
+            Manifold result) {
 
+        result.clear();
+
+        double[][] aPieces = a.getWorldPieces();
+        double[][] bPieces = b.getWorldPieces();
+        double[][] aAxes = a.getWorldAxes();
+        double[][] bAxes = b.getWorldAxes();
+        double[] aBounds = a.getWorldPieceBounds();
+        double[] bBounds = b.getWorldPieceBounds();
+
+        for (int i = 0; i < aPieces.length; i++) {
+            for (int j = 0; j < bPieces.length; j++) {
+                if (!overlaps(aBounds, 4 * i, bBounds, 4 * j)) {
+                    continue;
+                }
+
+                if (!penetration(aPieces[i], aAxes[i], bPieces[j], bAxes[j],
+                        result.pair)) {
+                    continue;
+                }
+
+                double normalX = result.pair[0];
+                double normalY = result.pair[1];
+                double depth = result.pair[2];
+
+                if (!result.colliding || depth > result.depth) {
+                    result.set(normalX, normalY, depth);
+                }
+
+                Clipping.clip(aPieces[i], bPieces[j], normalX, normalY, depth,
+                        i, j, result);
+            }
+        }
+
+        result.reduce();
+
+        return result.colliding;
+    }
+
+    /*
+     * Finds a pair of colliding pieces, as the index of the piece of a shifted
+     * up 32 bits and the index of the piece of b, or -1 if the bodies do not
+     * collide.
+     */
+    private static long findCollision(Body a, Body b) {
+        if (a.isConvex() && b.isConvex()) {
+            return convexConvex(a, b) ? 0 : -1;
+        }
+
+        if (a.isConvex()) {
+            AABB box = a.getAABB();
+            return convexConcave(a.getWorldVertices(), a.getWorldAxes()[0],
+                    box.minX, box.minY, box.maxX, box.maxY, b);
+        }
+
+        if (b.isConvex()) {
+            AABB box = b.getAABB();
+            int piece = convexConcave(b.getWorldVertices(),
+                    b.getWorldAxes()[0], box.minX, box.minY, box.maxX,
+                    box.maxY, a);
+            return piece == -1 ? -1 : (long) piece << 32;
+        }
+
+        return concaveConcave(a, b);
+    }
+
+    private static boolean convexConvex(Body a, Body b) {
+        if (a.getVertexCount() < SUPPORT_MIN_VERTICES
+                && b.getVertexCount() < SUPPORT_MIN_VERTICES) {
+            return checkCollision(a.getWorldVertices(), a.getWorldAxes()[0],
+                    b.getWorldVertices(), b.getWorldAxes()[0]);
+        }
+
+        return !edgeSeparates(a, b) && !edgeSeparates(b, a);
+    }
+
+    /*
+     * Checks if the second convex body lies entirely in front of an edge of
+     * the first one. The first body's projection on an outward edge normal
+     * ends at the edge, so only the nearest vertex of the second body is
+     * needed, found in O(log n) for large bodies.
+     */
+    private static boolean edgeSeparates(Body a, Body b) {
+        double[] aVertices = a.getWorldVertices();
+        double[] bVertices = b.getWorldVertices();
         int aLength = aVertices.length;
         int bLength = bVertices.length;
 
-        // Try to find a separating axis using the first polygon's edges
-        for (int i = 0, j = aLength - 1; i < aLength; j = i, i++) {
-            Vector2d axis = Vector2d.sub(aVertices[i], aVertices[j]).perp(true);
+        double outward = a.isWorldCounterClockwise() ? 1 : -1;
+        boolean useSupport = b.getVertexCount() >= SUPPORT_MIN_VERTICES;
+
+        for (int i = 0, j = aLength - 2; i < aLength; j = i, i += 2) {
+            double axisX = (aVertices[i + 1] - aVertices[j + 1]) * outward;
+            double axisY = (aVertices[j] - aVertices[i]) * outward;
+            double edge = axisX * aVertices[i] + axisY * aVertices[i + 1];
+
+            double min;
+            if (useSupport) {
+                int k = 2 * b.support(-axisX, -axisY);
+                min = axisX * bVertices[k] + axisY * bVertices[k + 1];
+            } else {
+                min = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < bLength; k += 2) {
+                    min = Math.min(min,
+                            axisX * bVertices[k] + axisY * bVertices[k + 1]);
+                }
+            }
+
+            if (min > edge) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Checks a convex polygon with the given bounds against the pieces of a
+     * concave body, skipping pieces whose bounds do not overlap. Returns the
+     * first colliding piece, or -1.
+     */
+    private static int convexConcave(double[] convex, double[] convexAxes,
+            double minX, double minY, double maxX, double maxY,
+            Body concave) {
+
+        double[][] pieces = concave.getWorldPieces();
+        double[][] axes = concave.getWorldAxes();
+        PieceTree tree = concave.getPieceTree();
+
+        if (tree != null) {
+            return collideTree(convex, convexAxes, minX, minY, maxX, maxY,
+                    pieces, axes, tree, 0);
+        }
+
+        double[] bounds = concave.getWorldPieceBounds();
+
+        for (int i = 0; i < pieces.length; i++) {
+            int b = 4 * i;
+            if (bounds[b] <= maxX && bounds[b + 2] >= minX
+                    && bounds[b + 1] <= maxY && bounds[b + 3] >= minY
+                    && checkCollision(convex, convexAxes, pieces[i],
+                            axes[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /*
+     * Descends the subtree of a node, only into boxes overlapping the bounds
+     * of the convex polygon. Returns the first colliding piece, or -1.
+     */
+    private static int collideTree(double[] convex, double[] convexAxes,
+            double minX, double minY, double maxX, double maxY,
+            double[][] pieces, double[][] axes, PieceTree tree, int node) {
+
+        if (!tree.overlaps(node, minX, minY, maxX, maxY)) {
+            return -1;
+        }
+
+        if (tree.child1[node] == PieceTree.LEAF) {
+            int piece = tree.piece[node];
+            return checkCollision(convex, convexAxes, pieces[piece],
+                    axes[piece]) ? piece : -1;
+        }
+
+        int piece = collideTree(convex, convexAxes, minX, minY, maxX, maxY,
+                pieces, axes, tree, tree.child1[node]);
+        if (piece != -1) {
+            return piece;
+        }
+
+        return collideTree(convex, convexAxes, minX, minY, maxX, maxY,
+                pieces, axes, tree, tree.child2[node]);
+    }
+
+    /*
+     * Checks every piece of the first body overlapping the second body
+     * against the pieces of the second body. Returns the colliding pair like
+     * findCollision.
+     */
+    private static long concaveConcave(Body p1, Body p2) {
+        double[][] p1Decomp = p1.getWorldPieces();
+        double[][] p1Axes = p1.getWorldAxes();
+        double[] p1Bounds = p1.getWorldPieceBounds();
+        AABB p2Box = p2.getAABB();
+
+        for (int i = 0; i < p1Decomp.length; i++) {
+            int b = 4 * i;
+            if (!p2Box.intersects(p1Bounds[b], p1Bounds[b + 1],
+                    p1Bounds[b + 2], p1Bounds[b + 3])) {
+                continue;
+            }
+
+            int piece = convexConcave(p1Decomp[i], p1Axes[i], p1Bounds[b],
+                    p1Bounds[b + 1], p1Bounds[b + 2], p1Bounds[b + 3], p2);
+            if (piece != -1) {
+                return ((long) i << 32) | piece;
+            }
+        }
+
+        return -1;
+    }
+
+    static boolean overlaps(double[] a, int i, double[] b, int j) {
+        return a[i] <= b[j + 2] && a[i + 2] >= b[j] && a[i + 1] <= b[j + 3]
+                && a[i + 3] >= b[j + 1];
+    }
+
+    /*
+     * Vertices are interleaved as x0, y0, x1, y1, ...
+     */
+    private static boolean checkCollision(double[] aVertices,
+            double[] bVertices) {
+
+        return separatingEdge(aVertices, bVertices) == -1;
+    }
+
+    /*
+     * Like checkCollision, but tests the precomputed axes of each polygon
+     * instead of the normal of every edge. Polygons without axes, such as
+     * query regions, fall back to their edges.
+     */
+    private static boolean checkCollision(double[] aVertices, double[] aAxes,
+            double[] bVertices, double[] bAxes) {
+
+        if (aAxes == null) {
+            return checkCollision(aVertices, bVertices);
+        }
 
-            if (separatingAxis(aVertices, bVertices, axis)) {
+        for (int i = 0; i < aAxes.length; i += 2) {
+            if (separatingAxis(aVertices, bVertices, aAxes[i], aAxes[i + 1])) {
                 return false;
             }
         }
 
+        for (int i = 0; i < bAxes.length; i += 2) {
+            if (separatingAxis(aVertices, bVertices, bAxes[i], bAxes[i + 1])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Finds an edge whose normal separates two convex polygons. Returns the
+     * index of the x component of the end vertex of the edge, counting the
+     * vertices of the second polygon after those of the first, or -1 if they
+     * collide.
+     */
+    private static int separatingEdge(double[] aVertices, double[] bVertices) {
+        int aLength = aVertices.length;
+        int bLength = bVertices.length;
+
+        // Try to find a separating axis using the first polygon's edges
+        for (int i = 0, j = aLength - 2; i < aLength; j = i, i += 2) {
+            double axisX = aVertices[i + 1] - aVertices[j + 1];
+            double axisY = aVertices[j] - aVertices[i];
+
+            if (separatingAxis(aVertices, bVertices, axisX, axisY)) {
+                return i;
+            }
+        }
+
         // Try to find a separating axis using the second polygon's edges
-        for (int i = 0, j = bLength - 1; i < bLength; j = i, i++) {
-            Vector2d axis = Vector2d.sub(bVertices[i], bVertices[j]).perp(true);
+        for (int i = 0, j = bLength - 2; i < bLength; j = i, i += 2) {
+            double axisX = bVertices[i + 1] - bVertices[j + 1];
+            double axisY = bVertices[j] - bVertices[i];
 
-            if (separatingAxis(aVertices, bVertices, axis)) {
-                return false;
+            if (separatingAxis(aVertices, bVertices, axisX, axisY)) {
+                return aLength + i;
+            }
+        }
+
+        return -1;
+    }
+
+    /*
+     * Finds the axis of least overlap of two convex polygons among their unit
+     * length axes, writing the normal and depth to the result if they
+     * collide.
+     */
+    private static boolean penetration(double[] aVertices, double[] aAxes,
+            double[] bVertices, double[] bAxes, double[] result) {
+
+        double depth = Double.POSITIVE_INFINITY;
+        double normalX = 0;
+        double normalY = 0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            double[] axes = pass == 0 ? aAxes : bAxes;
+
+            for (int i = 0; i < axes.length; i += 2) {
+                double axisX = axes[i];
+                double axisY = axes[i + 1];
+
+                double minA = Double.POSITIVE_INFINITY;
+                double maxA = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < aVertices.length; k += 2) {
+                    double dot = axisX * aVertices[k] + axisY * aVertices[k + 1];
+                    minA = Math.min(minA, dot);
+                    maxA = Math.max(maxA, dot);
+                }
+
+                double minB = Double.POSITIVE_INFINITY;
+                double maxB = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < bVertices.length; k += 2) {
+                    double dot = axisX * bVertices[k] + axisY * bVertices[k + 1];
+                    minB = Math.min(minB, dot);
+                    maxB = Math.max(maxB, dot);
+                }
+
+                if (maxA < minB || maxB < minA) {
+                    return false;
+                }
+
+                // Distance to push b along the axis, or against it
+                double forward = maxA - minB;
+                double backward = maxB - minA;
+
+                if (forward < depth) {
+                    depth = forward;
+                    normalX = axisX;
+                    normalY = axisY;
+                }
+
+                if (backward < depth) {
+                    depth = backward;
+                    normalX = -axisX;
+                    normalY = -axisY;
+                }
             }
         }
 
+        result[0] = normalX;
+        result[1] = normalY;
+        result[2] = depth;
+
         return true;
     }
 
-    private static boolean separatingAxis(Vector2d[] aVertices,
-            Vector2d[] bVertices, Vector2d axis) {
+    private static boolean separatingAxis(double[] aVertices,
+            double[] bVertices, double axisX, double axisY) {
 
         double minA = Double.POSITIVE_INFINITY;
         double maxA = Double.NEGATIVE_INFINITY;
@@ -74,9 +579,9 @@ public class SAT {
         int maxLength = Math.max(aVertices.length, bVertices.length);
 
         // project both polygons onto axis
-        for (int i = 0; i < maxLength; i++) {
+        for (int i = 0; i < maxLength; i += 2) {
             if (i < aVertices.length) {
-                double dot = axis.dot(aVertices[i]);    
+                double dot = axisX * aVertices[i] + axisY * aVertices[i + 1];
 
                 if (dot < minA)
                     minA = dot;
@@ -85,7 +590,7 @@ public class SAT {
             }
 
             if (i < bVertices.length) {
-                double dot = axis.dot(bVertices[i]);
+                double dot = axisX * bVertices[i] + axisY * bVertices[i + 1];
 
                 if (dot < minB)
                     minB = dot;
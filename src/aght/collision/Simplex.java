@@ -0,0 +1,96 @@
+package aght.collision;
+
+import java.util.Arrays;
+
+/**
+ * Simplex.
+ * <p>
+ * Scratch space of {@link GJK}: the simplex of up to three points of the
+ * Minkowski difference b - a, each with the vertices of both polygons it was
+ * made of and its barycentric weight, and the polytope expanded by EPA.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+final class Simplex {
+
+    int count;
+
+    /*
+     * Vertex of the first polygon, vertex of the second polygon, and their
+     * difference w = wB - wA of every point.
+     */
+    final double[] wAx = new double[3];
+    final double[] wAy = new double[3];
+    final double[] wBx = new double[3];
+    final double[] wBy = new double[3];
+    final double[] wx = new double[3];
+    final double[] wy = new double[3];
+
+    final double[] weight = new double[3];
+
+    final int[] indexA = new int[3];
+    final int[] indexB = new int[3];
+
+    /*
+     * Indices of the points before the last solve, to detect when the
+     * search stops making progress.
+     */
+    final int[] savedA = new int[3];
+    final int[] savedB = new int[3];
+
+    /*
+     * Closest points of both polygons and the distance between them.
+     */
+    double pointAX;
+    double pointAY;
+    double pointBX;
+    double pointBY;
+    double distance;
+
+    /*
+     * Polytope of the Minkowski difference expanded by EPA, counter clockwise.
+     */
+    int polytopeCount;
+    double[] polytopeX = new double[16];
+    double[] polytopeY = new double[16];
+
+    void set(int i, double[] a, int ia, double[] b, int ib) {
+        indexA[i] = ia;
+        indexB[i] = ib;
+        wAx[i] = a[2 * ia];
+        wAy[i] = a[2 * ia + 1];
+        wBx[i] = b[2 * ib];
+        wBy[i] = b[2 * ib + 1];
+        wx[i] = wBx[i] - wAx[i];
+        wy[i] = wBy[i] - wAy[i];
+        weight[i] = 1;
+    }
+
+    void copy(int dst, int src) {
+        indexA[dst] = indexA[src];
+        indexB[dst] = indexB[src];
+        wAx[dst] = wAx[src];
+        wAy[dst] = wAy[src];
+        wBx[dst] = wBx[src];
+        wBy[dst] = wBy[src];
+        wx[dst] = wx[src];
+        wy[dst] = wy[src];
+        weight[dst] = weight[src];
+    }
+
+    void insertPolytope(int index, double x, double y) {
+        if (polytopeCount == polytopeX.length) {
+            polytopeX = Arrays.copyOf(polytopeX, polytopeCount * 2);
+            polytopeY = Arrays.copyOf(polytopeY, polytopeCount * 2);
+        }
+
+        System.arraycopy(polytopeX, index, polytopeX, index + 1,
+                polytopeCount - index);
+        System.arraycopy(polytopeY, index, polytopeY, index + 1,
+                polytopeCount - index);
+        polytopeX[index] = x;
+        polytopeY[index] = y;
+        polytopeCount++;
+    }
+}
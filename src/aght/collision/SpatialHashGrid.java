@@ -0,0 +1,244 @@
+package aght.collision;
+
+/**
+ * SpatialHashGrid.
+ * <p>
+ * Broad phase dividing space into a uniform grid of square cells. Every update
+ * buckets each body into all the cells its bounds touch, using a hash table of
+ * cell coordinates with open addressing, so no boxed keys or lists are
+ * created. Bodies sharing a cell are candidate pairs.
+ * <p>
+ * Works best when the bodies are about the same size, with a cell size close to
+ * the size of a body. Large bodies touch many cells and make updates expensive.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class SpatialHashGrid implements BroadPhase {
+
+    private static final int EMPTY = -1;
+
+    private final double inverseCellSize;
+
+    private Body[] bodies = new Body[16];
+    private int bodyCount;
+
+    /*
+     * Bounds and cell ranges of every body, copied on update.
+     */
+    private double[] minX = new double[16];
+    private double[] minY = new double[16];
+    private double[] maxX = new double[16];
+    private double[] maxY = new double[16];
+    private int[] cellMinX = new int[16];
+    private int[] cellMinY = new int[16];
+    private int[] cellMaxX = new int[16];
+    private int[] cellMaxY = new int[16];
+
+    /*
+     * Hash table of cells. A slot is in use when its stamp matches the current
+     * stamp, so the table is cleared by incrementing the stamp.
+     */
+    private int[] slotStamp;
+    private int[] slotX;
+    private int[] slotY;
+    private int[] slotHead;
+    private int stamp;
+    private int mask;
+
+    /*
+     * Slots used in the current update, so that the cells can be iterated
+     * without scanning the whole table.
+     */
+    private int[] occupied;
+    private int occupiedCount;
+
+    /*
+     * Linked lists of the bodies in every cell.
+     */
+    private int[] entryBody = new int[64];
+    private int[] entryNext = new int[64];
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param cellSize
+     *            the width and height of a cell
+     */
+    public SpatialHashGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The cell size must be greater than 0.");
+        }
+
+        this.inverseCellSize = 1 / cellSize;
+        allocateTable(64);
+    }
+
+    @Override
+    public void add(Body body) {
+        if (bodyCount == bodies.length) {
+            grow();
+        }
+
+        bodies[bodyCount++] = body;
+    }
+
+    @Override
+    public boolean remove(Body body) {
+        for (int i = 0; i < bodyCount; i++) {
+            if (bodies[i] == body) {
+                bodyCount--;
+                bodies[i] = bodies[bodyCount];
+                bodies[bodyCount] = null;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return bodyCount;
+    }
+
+    /**
+     * Reads the current bounds of every body and rebuilds the cells.
+     */
+    @Override
+    public void update() {
+        int entries = 0;
+
+        for (int i = 0; i < bodyCount; i++) {
+            AABB box = bodies[i].getAABB();
+
+            minX[i] = box.minX;
+            minY[i] = box.minY;
+            maxX[i] = box.maxX;
+            maxY[i] = box.maxY;
+
+            cellMinX[i] = cell(box.minX);
+            cellMinY[i] = cell(box.minY);
+            cellMaxX[i] = cell(box.maxX);
+            cellMaxY[i] = cell(box.maxY);
+
+            entries += (cellMaxX[i] - cellMinX[i] + 1)
+                    * (cellMaxY[i] - cellMinY[i] + 1);
+        }
+
+        if (entries > entryBody.length) {
+            int capacity = Integer.highestOneBit(entries) << 1;
+            entryBody = new int[capacity];
+            entryNext = new int[capacity];
+        }
+
+        // Keep the table at most half full
+        if (entries * 2 > slotStamp.length) {
+            allocateTable(Integer.highestOneBit(entries) << 2);
+        } else if (++stamp == 0) {
+            allocateTable(slotStamp.length);
+        }
+
+        occupiedCount = 0;
+        int entry = 0;
+
+        for (int i = 0; i < bodyCount; i++) {
+            for (int y = cellMinY[i]; y <= cellMaxY[i]; y++) {
+                for (int x = cellMinX[i]; x <= cellMaxX[i]; x++) {
+                    int slot = slot(x, y);
+
+                    entryBody[entry] = i;
+                    entryNext[entry] = slotHead[slot];
+                    slotHead[slot] = entry;
+                    entry++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports every pair of bodies whose bounds overlap, each pair once. A pair
+     * sharing several cells is only reported from the first cell of the
+     * overlap of their cell ranges.
+     */
+    @Override
+    public void findPairs(PairCallback callback) {
+        for (int i = 0; i < occupiedCount; i++) {
+            int slot = occupied[i];
+            int x = slotX[slot];
+            int y = slotY[slot];
+
+            for (int e1 = slotHead[slot]; e1 != EMPTY; e1 = entryNext[e1]) {
+                int a = entryBody[e1];
+
+                for (int e2 = entryNext[e1]; e2 != EMPTY; e2 = entryNext[e2]) {
+                    int b = entryBody[e2];
+
+                    if (Math.max(cellMinX[a], cellMinX[b]) != x
+                            || Math.max(cellMinY[a], cellMinY[b]) != y) {
+                        continue;
+                    }
+
+                    if (minX[a] <= maxX[b] && maxX[a] >= minX[b]
+                            && minY[a] <= maxY[b] && maxY[a] >= minY[b]) {
+                        callback.pair(bodies[a], bodies[b]);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    /*
+     * Finds the slot of a cell, claiming a new slot if the cell is not in the
+     * table yet.
+     */
+    private int slot(int x, int y) {
+        int slot = ((x * 73856093) ^ (y * 19349663)) & mask;
+
+        while (slotStamp[slot] == stamp) {
+            if (slotX[slot] == x && slotY[slot] == y) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        slotStamp[slot] = stamp;
+        slotX[slot] = x;
+        slotY[slot] = y;
+        slotHead[slot] = EMPTY;
+        occupied[occupiedCount++] = slot;
+
+        return slot;
+    }
+
+    private void allocateTable(int capacity) {
+        slotStamp = new int[capacity];
+        slotX = new int[capacity];
+        slotY = new int[capacity];
+        slotHead = new int[capacity];
+        occupied = new int[capacity];
+        mask = capacity - 1;
+        stamp = 1;
+    }
+
+    private void grow() {
+        int capacity = bodies.length * 2;
+
+        Body[] nBodies = new Body[capacity];
+        System.arraycopy(bodies, 0, nBodies, 0, bodyCount);
+        bodies = nBodies;
+
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        cellMinX = new int[capacity];
+        cellMinY = new int[capacity];
+        cellMaxX = new int[capacity];
+        cellMaxY = new int[capacity];
+    }
+}
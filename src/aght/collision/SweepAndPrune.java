@@ -0,0 +1,215 @@
+package aght.collision;
+
+/**
+ * SweepAndPrune.
+ * <p>
+ * Broad phase keeping the x extents of the bodies' bounds as a sorted list of
+ * endpoints. Bodies only move a little between steps, so the list stays nearly
+ * sorted and an insertion sort restores the order in close to linear time.
+ * Sweeping the list then only tests bodies whose x extents overlap, giving
+ * candidate pairs whose bounds overlap on both axes.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class SweepAndPrune implements BroadPhase {
+
+    private Body[] bodies = new Body[16];
+    private int bodyCount;
+
+    /*
+     * Endpoint values and their owners, with each owner encoded as
+     * (proxy << 1) | 1 for a max endpoint and (proxy << 1) for a min endpoint.
+     */
+    private double[] values = new double[32];
+    private int[] endpoints = new int[32];
+
+    /*
+     * y extents of every proxy, copied from the bodies on update so the sweep
+     * does not have to go through the bodies.
+     */
+    private double[] minY = new double[16];
+    private double[] maxY = new double[16];
+
+    /*
+     * Proxies whose x extent is open during a sweep, and the index of each
+     * proxy within that list.
+     */
+    private int[] active = new int[16];
+    private int[] activeIndex = new int[16];
+
+    /**
+     * Adds a body. Its endpoints are sorted into place on the next update.
+     *
+     * @param body
+     *            the body to add
+     */
+    @Override
+    public void add(Body body) {
+        if (bodyCount == bodies.length) {
+            grow();
+        }
+
+        int proxy = bodyCount++;
+        bodies[proxy] = body;
+
+        AABB box = body.getAABB();
+        int n = proxy * 2;
+
+        values[n] = box.minX;
+        endpoints[n] = proxy << 1;
+        values[n + 1] = box.maxX;
+        endpoints[n + 1] = (proxy << 1) | 1;
+    }
+
+    @Override
+    public boolean remove(Body body) {
+        int proxy = -1;
+        for (int i = 0; i < bodyCount; i++) {
+            if (bodies[i] == body) {
+                proxy = i;
+                break;
+            }
+        }
+
+        if (proxy == -1) {
+            return false;
+        }
+
+        // Move the last proxy into the freed slot, keeping the endpoint order
+        int last = bodyCount - 1;
+        int count = bodyCount * 2;
+        int n = 0;
+
+        for (int i = 0; i < count; i++) {
+            int endpoint = endpoints[i];
+            int owner = endpoint >>> 1;
+
+            if (owner == proxy) {
+                continue;
+            }
+
+            if (owner == last) {
+                endpoint = (proxy << 1) | (endpoint & 1);
+            }
+
+            values[n] = values[i];
+            endpoints[n] = endpoint;
+            n++;
+        }
+
+        bodies[proxy] = bodies[last];
+        bodies[last] = null;
+        bodyCount--;
+
+        return true;
+    }
+
+    public int size() {
+        return bodyCount;
+    }
+
+    /**
+     * Reads the current bounds of every body and restores the order of the
+     * endpoints.
+     */
+    @Override
+    public void update() {
+        int count = bodyCount * 2;
+
+        for (int i = 0; i < count; i++) {
+            int endpoint = endpoints[i];
+            int proxy = endpoint >>> 1;
+            AABB box = bodies[proxy].getAABB();
+
+            if ((endpoint & 1) == 0) {
+                values[i] = box.minX;
+                minY[proxy] = box.minY;
+                maxY[proxy] = box.maxY;
+            } else {
+                values[i] = box.maxX;
+            }
+        }
+
+        // Insertion sort, close to linear on the nearly sorted list
+        for (int i = 1; i < count; i++) {
+            double value = values[i];
+            int endpoint = endpoints[i];
+
+            int j = i - 1;
+            while (j >= 0 && after(values[j], endpoints[j], value, endpoint)) {
+                values[j + 1] = values[j];
+                endpoints[j + 1] = endpoints[j];
+                j--;
+            }
+
+            values[j + 1] = value;
+            endpoints[j + 1] = endpoint;
+        }
+    }
+
+    /*
+     * Min endpoints go before max endpoints of the same value, so that
+     * touching bounds count as overlapping like in AABB.intersects.
+     */
+    private static boolean after(double aValue, int aEndpoint, double bValue,
+            int bEndpoint) {
+
+        return aValue > bValue
+                || (aValue == bValue && (aEndpoint & 1) > (bEndpoint & 1));
+    }
+
+    @Override
+    public void findPairs(PairCallback callback) {
+        int count = bodyCount * 2;
+        int activeCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            int endpoint = endpoints[i];
+            int proxy = endpoint >>> 1;
+
+            if ((endpoint & 1) == 0) {
+                double pMinY = minY[proxy];
+                double pMaxY = maxY[proxy];
+
+                for (int k = 0; k < activeCount; k++) {
+                    int other = active[k];
+
+                    if (pMinY <= maxY[other] && pMaxY >= minY[other]) {
+                        callback.pair(bodies[other], bodies[proxy]);
+                    }
+                }
+
+                active[activeCount] = proxy;
+                activeIndex[proxy] = activeCount;
+                activeCount++;
+            } else {
+                int last = active[--activeCount];
+                int index = activeIndex[proxy];
+                active[index] = last;
+                activeIndex[last] = index;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = bodies.length * 2;
+
+        Body[] nBodies = new Body[capacity];
+        System.arraycopy(bodies, 0, nBodies, 0, bodyCount);
+        bodies = nBodies;
+
+        double[] nValues = new double[capacity * 2];
+        System.arraycopy(values, 0, nValues, 0, bodyCount * 2);
+        values = nValues;
+
+        int[] nEndpoints = new int[capacity * 2];
+        System.arraycopy(endpoints, 0, nEndpoints, 0, bodyCount * 2);
+        endpoints = nEndpoints;
+
+        minY = new double[capacity];
+        maxY = new double[capacity];
+        active = new int[capacity];
+        activeIndex = new int[capacity];
+    }
+}
@@ -0,0 +1,338 @@
+package aght.collision;
+
+/**
+ * TimeOfImpact.
+ * <p>
+ * Continuous collision detection: finds when two bodies moving from a start
+ * pose to an end pose first touch, so fast bodies cannot pass through thin
+ * ones between two discrete checks. Both poses are interpolated linearly.
+ * <p>
+ * Uses conservative advancement. The distance between the bodies is found
+ * with {@link GJK}, and time is advanced by that distance divided by an upper
+ * bound of how fast any two of their points can approach each other, so the
+ * bodies can never overlap after a step. This repeats until they are closer
+ * than a tolerance or the motion ends. Fast spinning bodies loosen the bound,
+ * and if the iterations run out first the contact is reported early rather
+ * than missed.
+ * <p>
+ * The methods can be called from any thread, every thread has its own
+ * scratch space.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class TimeOfImpact {
+
+    /**
+     * Default distance at which two bodies are considered touching.
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-3;
+
+    private static final int MAX_ITERATIONS = 64;
+
+    /*
+     * Fraction of the tolerance below which the closest points are too near
+     * to give a normal.
+     */
+    private static final double NORMAL_TOLERANCE = 1e-6;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal
+            .withInitial(Scratch::new);
+
+    /**
+     * Finds the first contact of two bodies moving from their start poses to
+     * their end poses. The bodies themselves are not moved.
+     *
+     * @param a
+     *            the first body
+     * @param aStart
+     *            the pose of the first body at time 0
+     * @param aEnd
+     *            the pose of the first body at time 1
+     * @param b
+     *            the second body
+     * @param bStart
+     *            the pose of the second body at time 0
+     * @param bEnd
+     *            the pose of the second body at time 1
+     * @param result
+     *            the impact to write the result to
+     * @return true if they touch during the motion
+     */
+    public static boolean compute(Body a, Pose aStart, Pose aEnd, Body b,
+            Pose bStart, Pose bEnd, Impact result) {
+
+        return compute(a, aStart, aEnd, b, bStart, bEnd, DEFAULT_TOLERANCE,
+                result);
+    }
+
+    /**
+     * Finds the first contact of two bodies moving from their start poses to
+     * their end poses. The bodies themselves are not moved.
+     *
+     * @param a
+     *            the first body
+     * @param aStart
+     *            the pose of the first body at time 0
+     * @param aEnd
+     *            the pose of the first body at time 1
+     * @param b
+     *            the second body
+     * @param bStart
+     *            the pose of the second body at time 0
+     * @param bEnd
+     *            the pose of the second body at time 1
+     * @param tolerance
+     *            the distance at which the bodies are considered touching
+     * @param result
+     *            the impact to write the result to
+     * @return true if they touch during the motion
+     */
+    public static boolean compute(Body a, Pose aStart, Pose aEnd, Body b,
+            Pose bStart, Pose bEnd, double tolerance, Impact result) {
+
+        Scratch s = SCRATCH.get();
+        s.setMotion(s.aMotion, aStart, aEnd);
+        s.setMotion(s.bMotion, bStart, bEnd);
+
+        return compute(a, b, tolerance, s, result);
+    }
+
+    /**
+     * Finds the first contact of two bodies moving from the start of their
+     * open sweep, see {@link Body#beginSweep()}, to their current pose. A body
+     * without an open sweep is taken to stay in its current pose.
+     *
+     * @param a
+     *            the first body
+     * @param b
+     *            the second body
+     * @param result
+     *            the impact to write the result to
+     * @return true if they touch during the motion
+     */
+    public static boolean compute(Body a, Body b, Impact result) {
+        Scratch s = SCRATCH.get();
+        s.setMotion(s.aMotion, a);
+        s.setMotion(s.bMotion, b);
+
+        return compute(a, b, DEFAULT_TOLERANCE, s, result);
+    }
+
+    private static boolean compute(Body a, Body b, double tolerance,
+            Scratch s, Impact result) {
+
+        double[][] aPieces = s.buffers(0, a);
+        double[][] bPieces = s.buffers(1, b);
+        double[] am = s.aMotion;
+        double[] bm = s.bMotion;
+
+        // Upper bound of the approach speed of any two points, in distance
+        // per unit of time
+        double bound = Math.hypot((am[5] - am[0]) - (bm[5] - bm[0]),
+                (am[6] - am[1]) - (bm[6] - bm[1]))
+                + angularBound(a, am) + angularBound(b, bm);
+
+        approachNormal(am, bm, s);
+
+        double t = 0;
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            pose(a, am, t, aPieces);
+            pose(b, bm, t, bPieces);
+
+            double distance = distance(aPieces, bPieces, s);
+
+            if (distance == 0) {
+                if (t == 0) {
+                    // Already overlapping at the start, report the
+                    // direction that separates them
+                    GJK.penetration(aPieces[s.overlapA], bPieces[s.overlapB],
+                            s.simplex, s.pair);
+                    result.set(0, s.pair[0], s.pair[1], s.pointAX,
+                            s.pointAY);
+                    return true;
+                }
+
+                // Only reachable through rounding, keep the last contact
+                return true;
+            }
+
+            setContact(t, tolerance, s, result);
+
+            if (distance <= tolerance) {
+                return true;
+            }
+
+            if (bound <= 0) {
+                return false;
+            }
+
+            // Stop short of the tolerance so the bodies never overlap
+            t += (distance - tolerance / 2) / bound;
+
+            if (t > 1) {
+                return false;
+            }
+        }
+
+        // Still closing in slowly, report the contact rather than miss it
+        return true;
+    }
+
+    /*
+     * How fast rotation and scaling can move a point of a body, relative to
+     * its pivot.
+     */
+    private static double angularBound(Body body, double[] m) {
+        double maxScale = Math.max(Math.max(Math.abs(m[3]), Math.abs(m[4])),
+                Math.max(Math.abs(m[8]), Math.abs(m[9])));
+        double turn = Math.abs(Math.toRadians(m[7] - m[2]));
+        double grow = Math.max(Math.abs(m[8] - m[3]), Math.abs(m[9] - m[4]));
+
+        return body.getLocalRadius() * (turn * maxScale + grow);
+    }
+
+    private static void pose(Body body, double[] m, double t, double[][] dst) {
+        body.getWorldPieces(m[0] + (m[5] - m[0]) * t,
+                m[1] + (m[6] - m[1]) * t, m[2] + (m[7] - m[2]) * t,
+                m[3] + (m[8] - m[3]) * t, m[4] + (m[9] - m[4]) * t, dst);
+    }
+
+    /*
+     * Finds the smallest distance between any two pieces, keeping the
+     * closest points, or the first overlapping pair of pieces.
+     */
+    private static double distance(double[][] aPieces, double[][] bPieces,
+            Scratch s) {
+
+        double best = Double.POSITIVE_INFINITY;
+        Simplex simplex = s.simplex;
+
+        for (int i = 0; i < aPieces.length; i++) {
+            for (int j = 0; j < bPieces.length; j++) {
+                GJK.solve(aPieces[i], bPieces[j], simplex);
+
+                if (simplex.count == 3) {
+                    s.overlapA = i;
+                    s.overlapB = j;
+                    s.pointAX = simplex.pointAX;
+                    s.pointAY = simplex.pointAY;
+                    return 0;
+                }
+
+                if (simplex.distance < best) {
+                    best = simplex.distance;
+                    s.pointAX = simplex.pointAX;
+                    s.pointAY = simplex.pointAY;
+                    s.pointBX = simplex.pointBX;
+                    s.pointBY = simplex.pointBY;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /*
+     * Closest points nearly on top of each other, such as from a degenerate
+     * simplex, give no direction. Then the normal of the previous step is
+     * kept, or before the first one the direction the bodies approach from.
+     */
+    private static void setContact(double t, double tolerance, Scratch s,
+            Impact result) {
+
+        double dx = s.pointBX - s.pointAX;
+        double dy = s.pointBY - s.pointAY;
+        double length = Math.sqrt(dx * dx + dy * dy);
+
+        if (length > tolerance * NORMAL_TOLERANCE) {
+            s.normalX = dx / length;
+            s.normalY = dy / length;
+        }
+
+        result.set(t, s.normalX, s.normalY, (s.pointAX + s.pointBX) / 2,
+                (s.pointAY + s.pointBY) / 2);
+    }
+
+    /*
+     * Sets the fallback normal to the direction the second body approaches
+     * the first from, or the direction between their start positions if they
+     * do not approach.
+     */
+    private static void approachNormal(double[] am, double[] bm, Scratch s) {
+        double dx = (am[5] - am[0]) - (bm[5] - bm[0]);
+        double dy = (am[6] - am[1]) - (bm[6] - bm[1]);
+
+        if (dx == 0 && dy == 0) {
+            dx = bm[0] - am[0];
+            dy = bm[1] - am[1];
+        }
+
+        double length = Math.sqrt(dx * dx + dy * dy);
+        s.normalX = length == 0 ? 1 : dx / length;
+        s.normalY = length == 0 ? 0 : dy / length;
+    }
+
+    /*
+     * Per thread buffers for the interpolated pieces, the motions as x, y,
+     * rotation, scale x, scale y at the start then the same at the end, the
+     * closest points and the last normal.
+     */
+    private static final class Scratch {
+
+        final Simplex simplex = new Simplex();
+        final double[] pair = new double[3];
+
+        final double[] aMotion = new double[10];
+        final double[] bMotion = new double[10];
+
+        private final double[][][] buffers = new double[2][][];
+
+        int overlapA;
+        int overlapB;
+        double pointAX;
+        double pointAY;
+        double pointBX;
+        double pointBY;
+        double normalX;
+        double normalY;
+
+        double[][] buffers(int slot, Body body) {
+            buffers[slot] = body.pieceBuffers(buffers[slot]);
+            return buffers[slot];
+        }
+
+        void setMotion(double[] m, Pose start, Pose end) {
+            m[0] = start.getX();
+            m[1] = start.getY();
+            m[2] = start.getRotation();
+            m[3] = start.getScaleX();
+            m[4] = start.getScaleY();
+            m[5] = end.getX();
+            m[6] = end.getY();
+            m[7] = end.getRotation();
+            m[8] = end.getScaleX();
+            m[9] = end.getScaleY();
+        }
+
+        void setMotion(double[] m, Body body) {
+            m[5] = body.getX();
+            m[6] = body.getY();
+            m[7] = body.getRotation();
+            m[8] = body.getScaleX();
+            m[9] = body.getScaleY();
+
+            Pose start = body.getSweepStart();
+            if (start == null) {
+                System.arraycopy(m, 5, m, 0, 5);
+            } else {
+                m[0] = start.getX();
+                m[1] = start.getY();
+                m[2] = start.getRotation();
+                m[3] = start.getScaleX();
+                m[4] = start.getScaleY();
+            }
+        }
+    }
+}
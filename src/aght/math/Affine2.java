@@ -0,0 +1,382 @@
+package aght.math;
+
+/**
+ * A class to represent an immutable two dimensional affine transform, the
+ * 2x3 matrix:
+ *
+ * <pre>
+ * [  x' ]   [  m00   m01   m02  ] [  x  ]
+ * [  y' ] = [  m10   m11   m12  ] [  y  ]
+ *                                 [  1  ]
+ * </pre>
+ *
+ * Like {@link Mat2} the values are final fields and every product is written
+ * out in full, which makes composing a chain of parent and child transforms
+ * cheap, and the JIT can often keep short lived results in registers instead
+ * of allocating them. {@link Transform2d} is the mutable counterpart to reuse
+ * when one transform is set every frame.
+ *
+ * @author Andy Tang
+ * @version 1.0
+ */
+public final class Affine2 {
+
+    /**
+     * The transform that leaves points unchanged.
+     */
+    public static final Affine2 IDENTITY = new Affine2(1, 0, 0, 0, 1, 0);
+
+    public final double m00;
+    public final double m01;
+    public final double m02;
+    public final double m10;
+    public final double m11;
+    public final double m12;
+
+    /**
+     * Constructs a transform from the values of its matrix.
+     *
+     * @param m00
+     *            the x scale and rotation component
+     * @param m01
+     *            the x shear and rotation component
+     * @param m02
+     *            the x translation
+     * @param m10
+     *            the y shear and rotation component
+     * @param m11
+     *            the y scale and rotation component
+     * @param m12
+     *            the y translation
+     */
+    public Affine2(double m00, double m01, double m02, double m10, double m11,
+            double m12) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+    }
+
+    /**
+     * Constructs a transform from a linear part and a translation.
+     *
+     * @param linear
+     *            the rotation, scale and shear
+     * @param x
+     *            the translation along the x axis
+     * @param y
+     *            the translation along the y axis
+     */
+    public Affine2(Mat2 linear, double x, double y) {
+        this(linear.m00, linear.m01, x, linear.m10, linear.m11, y);
+    }
+
+    /**
+     * Creates a translation.
+     *
+     * @param x
+     *            the translation along the x axis
+     * @param y
+     *            the translation along the y axis
+     * @return the translation
+     */
+    public static Affine2 translation(double x, double y) {
+        return new Affine2(1, 0, x, 0, 1, y);
+    }
+
+    /**
+     * Creates a rotation about an anchor point.
+     *
+     * @param angle
+     *            the angle to rotate by (radians)
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @return the rotation
+     */
+    public static Affine2 rotation(double angle, double anchorX,
+            double anchorY) {
+        return pose(0, 0, angle, 1, 1, anchorX, anchorY);
+    }
+
+    /**
+     * Creates a scale about an anchor point.
+     *
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @return the scale
+     */
+    public static Affine2 scale(double scaleX, double scaleY, double anchorX,
+            double anchorY) {
+        return new Affine2(scaleX, 0, anchorX - scaleX * anchorX, 0, scaleY,
+                anchorY - scaleY * anchorY);
+    }
+
+    /**
+     * Creates a pose: scaling, then rotating about a pivot point, then
+     * translating, the same as {@link Transform2d#setPose}.
+     *
+     * @param x
+     *            the translation along the x axis
+     * @param y
+     *            the translation along the y axis
+     * @param angle
+     *            the angle to rotate by (radians)
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @param pivotX
+     *            x component of the point rotated and scaled about
+     * @param pivotY
+     *            y component of the point rotated and scaled about
+     * @return the pose
+     */
+    public static Affine2 pose(double x, double y, double angle, double scaleX,
+            double scaleY, double pivotX, double pivotY) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double m00 = cos * scaleX;
+        double m01 = -sin * scaleY;
+        double m10 = sin * scaleX;
+        double m11 = cos * scaleY;
+
+        return new Affine2(m00, m01, x + pivotX - (m00 * pivotX + m01 * pivotY),
+                m10, m11, y + pivotY - (m10 * pivotX + m11 * pivotY));
+    }
+
+    /**
+     * Copies the current values of a mutable transform.
+     *
+     * @param transform
+     *            the Transform2d object to copy
+     * @return the copy
+     */
+    public static Affine2 of(Transform2d transform) {
+        return new Affine2(transform.getM00(), transform.getM01(),
+                transform.getM02(), transform.getM10(), transform.getM11(),
+                transform.getM12());
+    }
+
+    /**
+     * Composes this transform with a transform applied before it, such as a
+     * parent transform with the transform of a child relative to the parent.
+     *
+     * @param before
+     *            the transform applied first
+     * @return a new transform applying before and then this transform
+     */
+    public Affine2 compose(Affine2 before) {
+        return new Affine2(m00 * before.m00 + m01 * before.m10,
+                m00 * before.m01 + m01 * before.m11,
+                m00 * before.m02 + m01 * before.m12 + m02,
+                m10 * before.m00 + m11 * before.m10,
+                m10 * before.m01 + m11 * before.m11,
+                m10 * before.m02 + m11 * before.m12 + m12);
+    }
+
+    /**
+     * Composes this transform with a transform applied after it.
+     *
+     * @param after
+     *            the transform applied last
+     * @return a new transform applying this transform and then after
+     */
+    public Affine2 then(Affine2 after) {
+        return after.compose(this);
+    }
+
+    /**
+     * Composes this transform with a transform applied before it and stores
+     * the result in a mutable transform, so a chain of transforms can be
+     * composed into one reused object.
+     *
+     * @param before
+     *            the transform applied first
+     * @param dst
+     *            the Transform2d object to store the result in
+     * @return dst
+     */
+    public Transform2d compose(Affine2 before, Transform2d dst) {
+        return dst.set(m00 * before.m00 + m01 * before.m10,
+                m00 * before.m01 + m01 * before.m11,
+                m00 * before.m02 + m01 * before.m12 + m02,
+                m10 * before.m00 + m11 * before.m10,
+                m10 * before.m01 + m11 * before.m11,
+                m10 * before.m02 + m11 * before.m12 + m12);
+    }
+
+    /**
+     * Calculates the determinant of the linear part, negative when the
+     * transform mirrors.
+     *
+     * @return the determinant
+     */
+    public double determinant() {
+        return m00 * m11 - m01 * m10;
+    }
+
+    /**
+     * Calculates the inverse of this transform.
+     *
+     * @return a new transform undoing this transform
+     */
+    public Affine2 inverse() {
+        double det = determinant();
+
+        if (det == 0) {
+            throw new IllegalArgumentException(
+                    "A singular transform has no inverse.");
+        }
+
+        double i00 = m11 / det;
+        double i01 = -m01 / det;
+        double i10 = -m10 / det;
+        double i11 = m00 / det;
+
+        return new Affine2(i00, i01, -(i00 * m02 + i01 * m12), i10, i11,
+                -(i10 * m02 + i11 * m12));
+    }
+
+    /**
+     * Gets the rotation, scale and shear of this transform.
+     *
+     * @return the linear part
+     */
+    public Mat2 linear() {
+        return new Mat2(m00, m01, m10, m11);
+    }
+
+    /**
+     * Transforms a vector in place.
+     *
+     * @param vec
+     *            the Vector2d object to transform
+     * @return the transformed Vector2d object
+     */
+    public Vector2d apply(Vector2d vec) {
+        double x = vec.x;
+        vec.x = m00 * x + m01 * vec.y + m02;
+        vec.y = m10 * x + m11 * vec.y + m12;
+        return vec;
+    }
+
+    /**
+     * Transforms a vector in place by the inverse of this transform, without
+     * building the inverse, such as to move a point into the space of a
+     * child.
+     *
+     * @param vec
+     *            the Vector2d object to transform
+     * @return the transformed Vector2d object
+     */
+    public Vector2d applyInverse(Vector2d vec) {
+        double det = determinant();
+
+        if (det == 0) {
+            throw new IllegalArgumentException(
+                    "A singular transform has no inverse.");
+        }
+
+        double x = vec.x - m02;
+        double y = vec.y - m12;
+        vec.x = (m11 * x - m01 * y) / det;
+        vec.y = (m00 * y - m10 * x) / det;
+        return vec;
+    }
+
+    /**
+     * Transforms every point of an interleaved array, writing them to another
+     * array. The source and destination may be the same array.
+     *
+     * @param src
+     *            the points, interleaved as x0, y0, x1, y1, ...
+     * @param dst
+     *            the array to write the transformed points to
+     */
+    public void apply(double[] src, double[] dst) {
+        double a = m00;
+        double b = m01;
+        double c = m02;
+        double d = m10;
+        double e = m11;
+        double f = m12;
+        int length = src.length & ~1;
+
+        for (int i = 0; i < length; i += 2) {
+            double x = src[i];
+            double y = src[i + 1];
+            dst[i] = a * x + b * y + c;
+            dst[i + 1] = d * x + e * y + f;
+        }
+    }
+
+    /**
+     * Stores this transform in a mutable transform.
+     *
+     * @param dst
+     *            the Transform2d object to store this transform in
+     * @return dst
+     */
+    public Transform2d toTransform(Transform2d dst) {
+        return dst.set(m00, m01, m02, m10, m11, m12);
+    }
+
+    /**
+     * Converts this transform to a general 3x3 {@link Matrix} over
+     * homogeneous coordinates.
+     *
+     * @return a new 3x3 Matrix object
+     */
+    public Matrix toMatrix() {
+        return new Matrix(new double[][] { { m00, m01, m02 },
+                { m10, m11, m12 }, { 0, 0, 1 } });
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Double.hashCode(m00);
+        result = prime * result + Double.hashCode(m01);
+        result = prime * result + Double.hashCode(m02);
+        result = prime * result + Double.hashCode(m10);
+        result = prime * result + Double.hashCode(m11);
+        result = prime * result + Double.hashCode(m12);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof Affine2)) {
+            return false;
+        }
+
+        Affine2 m = (Affine2) obj;
+        return Double.compare(m00, m.m00) == 0
+                && Double.compare(m01, m.m01) == 0
+                && Double.compare(m02, m.m02) == 0
+                && Double.compare(m10, m.m10) == 0
+                && Double.compare(m11, m.m11) == 0
+                && Double.compare(m12, m.m12) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "[[" + m00 + ", " + m01 + ", " + m02 + "], [" + m10 + ", " + m11
+                + ", " + m12 + "]]";
+    }
+}
@@ -0,0 +1,239 @@
+package aght.math;
+
+/**
+ * A class to represent an immutable 2x2 matrix:
+ *
+ * <pre>
+ * [  m00   m01  ]
+ * [  m10   m11  ]
+ * </pre>
+ *
+ * The values are final fields rather than an array, so reading them needs no
+ * bounds checks or indirection, and the products below are written out in
+ * full. Use {@link Matrix} for matrices of other sizes.
+ *
+ * @author Andy Tang
+ * @version 1.0
+ */
+public final class Mat2 {
+
+    /**
+     * The matrix that leaves vectors unchanged.
+     */
+    public static final Mat2 IDENTITY = new Mat2(1, 0, 0, 1);
+
+    public final double m00;
+    public final double m01;
+    public final double m10;
+    public final double m11;
+
+    /**
+     * Constructs a matrix from its values, row by row.
+     *
+     * @param m00
+     *            the value in the first row and column
+     * @param m01
+     *            the value in the first row and second column
+     * @param m10
+     *            the value in the second row and first column
+     * @param m11
+     *            the value in the second row and column
+     */
+    public Mat2(double m00, double m01, double m10, double m11) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m10 = m10;
+        this.m11 = m11;
+    }
+
+    /**
+     * Creates a rotation matrix.
+     *
+     * @param angle
+     *            the angle to rotate by (radians)
+     * @return the rotation matrix
+     */
+    public static Mat2 rotation(double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return new Mat2(cos, -sin, sin, cos);
+    }
+
+    /**
+     * Creates a scaling matrix.
+     *
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @return the scaling matrix
+     */
+    public static Mat2 scale(double scaleX, double scaleY) {
+        return new Mat2(scaleX, 0, 0, scaleY);
+    }
+
+    /**
+     * Converts a 2x2 {@link Matrix}.
+     *
+     * @param m
+     *            the Matrix object to convert
+     * @return the converted matrix
+     */
+    public static Mat2 fromMatrix(Matrix m) {
+        if (m.rows() != 2 || m.cols() != 2) {
+            throw new IllegalArgumentException("The matrix must be 2x2.");
+        }
+
+        return new Mat2(m.get(0, 0), m.get(0, 1), m.get(1, 0), m.get(1, 1));
+    }
+
+    /**
+     * Multiplies this matrix by another matrix, so that applying the product
+     * applies the other matrix first.
+     *
+     * @param m
+     *            the matrix to multiply by
+     * @return a new matrix containing the product
+     */
+    public Mat2 mult(Mat2 m) {
+        return new Mat2(m00 * m.m00 + m01 * m.m10, m00 * m.m01 + m01 * m.m11,
+                m10 * m.m00 + m11 * m.m10, m10 * m.m01 + m11 * m.m11);
+    }
+
+    /**
+     * Multiplies this matrix by a scalar.
+     *
+     * @param scl
+     *            the scalar value
+     * @return a new matrix containing the product
+     */
+    public Mat2 mult(double scl) {
+        return new Mat2(m00 * scl, m01 * scl, m10 * scl, m11 * scl);
+    }
+
+    /**
+     * Adds another matrix to this matrix.
+     *
+     * @param m
+     *            the matrix to add
+     * @return a new matrix containing the sum
+     */
+    public Mat2 add(Mat2 m) {
+        return new Mat2(m00 + m.m00, m01 + m.m01, m10 + m.m10, m11 + m.m11);
+    }
+
+    /**
+     * Calculates the determinant, negative when the matrix mirrors.
+     *
+     * @return the determinant
+     */
+    public double determinant() {
+        return m00 * m11 - m01 * m10;
+    }
+
+    /**
+     * Calculates the inverse of this matrix.
+     *
+     * @return a new matrix containing the inverse
+     */
+    public Mat2 inverse() {
+        double det = determinant();
+
+        if (det == 0) {
+            throw new IllegalArgumentException(
+                    "A singular matrix has no inverse.");
+        }
+
+        return new Mat2(m11 / det, -m01 / det, -m10 / det, m00 / det);
+    }
+
+    /**
+     * Transposes this matrix.
+     *
+     * @return a new matrix containing the transpose
+     */
+    public Mat2 transpose() {
+        return new Mat2(m00, m10, m01, m11);
+    }
+
+    /**
+     * Multiplies a vector by this matrix in place.
+     *
+     * @param vec
+     *            the Vector2d object to transform
+     * @return the transformed Vector2d object
+     */
+    public Vector2d apply(Vector2d vec) {
+        double x = vec.x;
+        vec.x = m00 * x + m01 * vec.y;
+        vec.y = m10 * x + m11 * vec.y;
+        return vec;
+    }
+
+    /**
+     * Multiplies every point of an interleaved array by this matrix, writing
+     * them to another array. The source and destination may be the same
+     * array.
+     *
+     * @param src
+     *            the points, interleaved as x0, y0, x1, y1, ...
+     * @param dst
+     *            the array to write the transformed points to
+     */
+    public void apply(double[] src, double[] dst) {
+        double a = m00;
+        double b = m01;
+        double c = m10;
+        double d = m11;
+        int length = src.length & ~1;
+
+        for (int i = 0; i < length; i += 2) {
+            double x = src[i];
+            double y = src[i + 1];
+            dst[i] = a * x + b * y;
+            dst[i + 1] = c * x + d * y;
+        }
+    }
+
+    /**
+     * Converts this matrix to a general {@link Matrix}.
+     *
+     * @return a new 2x2 Matrix object
+     */
+    public Matrix toMatrix() {
+        return new Matrix(new double[][] { { m00, m01 }, { m10, m11 } });
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Double.hashCode(m00);
+        result = prime * result + Double.hashCode(m01);
+        result = prime * result + Double.hashCode(m10);
+        result = prime * result + Double.hashCode(m11);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof Mat2)) {
+            return false;
+        }
+
+        Mat2 m = (Mat2) obj;
+        return Double.compare(m00, m.m00) == 0
+                && Double.compare(m01, m.m01) == 0
+                && Double.compare(m10, m.m10) == 0
+                && Double.compare(m11, m.m11) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "[[" + m00 + ", " + m01 + "], [" + m10 + ", " + m11 + "]]";
+    }
+}
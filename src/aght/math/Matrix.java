@@ -1,11 +1,19 @@
 package aght.math;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * A class to represent a matrix of any size. The matrices are represented using
- * a 2D array of type double, and can manipulated with the methods in this
- * class.
+ * A class to represent a matrix of any size. The matrices are stored row by
+ * row in a single array of type double, and can manipulated with the methods
+ * in this class.
+ * <p>
+ * Multiplication works on blocks of rows and columns small enough to stay in
+ * the CPU caches, reading the second matrix transposed so both inner loops
+ * walk memory in order. Large products can also be split across a fork/join
+ * pool, see {@link #mult(Matrix, Matrix, ForkJoinPool)}. For 2x2 matrices and
+ * 2D transforms, {@link Mat2} and {@link Affine2} are much faster.
  *
  * @author Andy Tang
  * @version 1.0
@@ -13,9 +21,21 @@ import java.util.Arrays;
 public class Matrix {
 
     /**
-     * 2D array representing a matrix.
+     * Side of the square blocks multiplication works on, 64 by 64 values of
+     * each matrix being 32KB.
      */
-    private double[][] matrix;
+    private static final int BLOCK = 64;
+
+    /**
+     * Smallest number of multiplications worth splitting across a pool.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 21;
+
+    /**
+     * Values of the matrix row by row, the value in row i and column j being
+     * at index i * cols + j.
+     */
+    private double[] data;
 
     /**
      * Number of rows in matrix.
@@ -38,7 +58,14 @@ public class Matrix {
      *            number of columns.
      */
     public Matrix(int rows, int cols) {
-        matrix = new double[rows][cols];
+        this(rows, cols, new double[rows * cols]);
+    }
+
+    /*
+     * Wraps an array of values row by row without copying it.
+     */
+    private Matrix(int rows, int cols, double[] data) {
+        this.data = data;
         this.rows = rows;
         this.cols = cols;
     }
@@ -48,7 +75,8 @@ public class Matrix {
      * constructor will automatically set the values of the matrix according to
      * the values of the array, the size of the matrix will also be determined
      * automatically;however, the array MUST be in valid matrix form, else a
-     * error will be thrown.
+     * error will be thrown. The values are copied, so later changes to the
+     * array do not change the matrix.
      * <p>
      * Examples of a valid array:
      * 
@@ -80,9 +108,13 @@ public class Matrix {
             }
         }
 
-        this.matrix = m;
+        this.data = new double[m.length * nCols];
         this.rows = m.length;
-        this.cols = m[0].length;
+        this.cols = nCols;
+
+        for (int i = 0; i < m.length; i++) {
+            System.arraycopy(m[i], 0, data, i * nCols, nCols);
+        }
     }
 
     /**
@@ -109,36 +141,19 @@ public class Matrix {
                             + "array values.");
         }
 
-        int index = 0;
-        double[][] tempMatrix = new double[nRows][nCols];
+        this.data = new double[nRows * nCols];
+        this.rows = nRows;
+        this.cols = nCols;
 
         if (byRow) {
-            for (int i = 0; i < nRows; i++) {
-                for (int j = 0; j < nCols; j++) {
-                    if (data.length > index) {
-                        tempMatrix[i][j] = data[index];
-                    } else {
-                        tempMatrix[i][j] = 0;
-                    }
-                    index++;
-                }
-            }
+            System.arraycopy(data, 0, this.data, 0, data.length);
         } else {
-            for (int i = 0; i < nCols; i++) {
-                for (int j = 0; j < nRows; j++) {
-                    if (data.length > index) {
-                        tempMatrix[j][i] = data[index];
-                    } else {
-                        tempMatrix[j][i] = 0;
-                    }
-                    index++;
-                }
+            // Cells after the end of the values are already 0
+            for (int index = 0; index < data.length; index++) {
+                this.data[(index % nRows) * nCols + index / nRows] =
+                        data[index];
             }
         }
-
-        this.matrix = tempMatrix;
-        this.rows = nRows;
-        this.cols = nCols;
     }
 
     /**
@@ -171,10 +186,8 @@ public class Matrix {
                     "The matrices must have the same dimensions.");
         }
 
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < this.cols; j++) {
-                this.matrix[i][j] = this.matrix[i][j] + m.get(i, j);
-            }
+        for (int i = 0; i < data.length; i++) {
+            data[i] += m.data[i];
         }
 
         return this;
@@ -195,15 +208,7 @@ public class Matrix {
                     "The matrices must have the same dimensions.");
         }
 
-        Matrix sum = new Matrix(m1.rows(), m1.cols());
-
-        for (int i = 0; i < m1.rows; i++) {
-            for (int j = 0; j < m1.cols; j++) {
-                sum.set(m1.get(i, j) + m2.get(i, j), i, j);
-            }
-        }
-
-        return sum;
+        return Matrix.clone(m1).add(m2);
     }
 
     /**
@@ -219,10 +224,8 @@ public class Matrix {
                     "The matrices must have the same dimensions");
         }
 
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < this.cols; j++) {
-                this.matrix[i][j] = this.matrix[i][j] - m.get(i, j);
-            }
+        for (int i = 0; i < data.length; i++) {
+            data[i] -= m.data[i];
         }
 
         return this;
@@ -243,15 +246,7 @@ public class Matrix {
                     "The matrices must have the same dimensions.");
         }
 
-        Matrix difference = new Matrix(m1.rows(), m1.cols());
-
-        for (int i = 0; i < m1.rows; i++) {
-            for (int j = 0; j < m1.cols; j++) {
-                difference.set(m1.get(i, j) - m2.get(i, j), i, j);
-            }
-        }
-
-        return difference;
+        return Matrix.clone(m1).sub(m2);
     }
 
     /**
@@ -262,10 +257,8 @@ public class Matrix {
      * @return this matrix multiplied by the scalar value
      */
     public Matrix mult(double scl) {
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < this.cols; j++) {
-                this.matrix[i][j] *= scl;
-            }
+        for (int i = 0; i < data.length; i++) {
+            data[i] *= scl;
         }
 
         return this;
@@ -281,15 +274,7 @@ public class Matrix {
      * @return a new Matrix object containing the product
      */
     public static Matrix mult(Matrix m, double scl) {
-        Matrix mult = Matrix.clone(m);
-
-        for (int i = 0; i < mult.rows(); i++) {
-            for (int j = 0; j < mult.cols(); j++) {
-                mult.set(mult.get(i, j) * scl, i, j);
-            }
-        }
-
-        return mult;
+        return Matrix.clone(m).mult(scl);
     }
 
     /**
@@ -307,17 +292,7 @@ public class Matrix {
                             + "number of rows in the second matrix");
         }
 
-        double[][] matrixArray = new double[this.rows][m.cols()];
-
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < m.cols(); j++) {
-                for (int n = 0; n < this.cols; n++) {
-                    matrixArray[i][j] += this.get(i, n) * m.get(n, j);
-                }
-            }
-        }
-
-        this.matrix = matrixArray;
+        this.data = product(this, m, null);
         this.cols = m.cols();
 
         return this;
@@ -333,23 +308,150 @@ public class Matrix {
      * @return a new matrix containing the product of the two matrices
      */
     public static Matrix mult(Matrix m1, Matrix m2) {
+        return mult(m1, m2, null);
+    }
+
+    /**
+     * Multiplies two matrices, splitting the work across a fork/join pool
+     * when the product is large enough to be worth it. The result is the same
+     * as without a pool.
+     * 
+     * @param m1
+     *            is matrix 1
+     * @param m2
+     *            is matrix 2
+     * @param pool
+     *            the pool to multiply on, or null to multiply on the calling
+     *            thread
+     * @return a new matrix containing the product of the two matrices
+     */
+    public static Matrix mult(Matrix m1, Matrix m2, ForkJoinPool pool) {
         if (!(m1.cols() == m2.rows())) {
             throw new IllegalArgumentException(
                     "The number of columns in the first matrix must match the "
                             + "number of rows in the second matrix");
         }
 
-        double[][] matrixArray = new double[m1.rows()][m2.cols()];
+        return new Matrix(m1.rows(), m2.cols(), product(m1, m2, pool));
+    }
+
+    /*
+     * Multiplies a by b into a new array. Each value is summed in the order
+     * of the naive triple loop, so the result does not depend on the blocks
+     * or the pool.
+     */
+    private static double[] product(Matrix a, Matrix b, ForkJoinPool pool) {
+        int n = a.rows;
+        int k = a.cols;
+        int p = b.cols;
+        double[] c = new double[n * p];
+
+        if (n == 0 || p == 0 || k == 0) {
+            return c;
+        }
+
+        // Rows of the transpose of b are columns of b, contiguous in memory
+        double[] bt = new double[p * k];
+        for (int l = 0; l < k; l++) {
+            for (int j = 0; j < p; j++) {
+                bt[j * k + l] = b.data[l * p + j];
+            }
+        }
+
+        long work = (long) n * k * p;
+        if (pool == null || work < PARALLEL_THRESHOLD || n <= BLOCK) {
+            multiplyRows(a.data, bt, c, k, p, 0, n);
+        } else {
+            pool.invoke(new MultiplyTask(a.data, bt, c, n, k, p, 0,
+                    (n + BLOCK - 1) / BLOCK));
+        }
+
+        return c;
+    }
+
+    /*
+     * Computes rows from to to of c = a * b, given b transposed, one block of
+     * rows, columns and inner indices at a time.
+     */
+    private static void multiplyRows(double[] a, double[] bt, double[] c,
+            int k, int p, int from, int to) {
+
+        for (int ii = from; ii < to; ii += BLOCK) {
+            int iEnd = Math.min(ii + BLOCK, to);
+
+            for (int jj = 0; jj < p; jj += BLOCK) {
+                int jEnd = Math.min(jj + BLOCK, p);
+
+                for (int ll = 0; ll < k; ll += BLOCK) {
+                    int lEnd = Math.min(ll + BLOCK, k);
+                    multiplyBlock(a, bt, c, k, p, ii, iEnd, jj, jEnd, ll,
+                            lEnd);
+                }
+            }
+        }
+    }
 
-        for (int i = 0; i < m1.rows(); i++) {
-            for (int j = 0; j < m2.cols(); j++) {
-                for (int n = 0; n < m1.cols(); n++) {
-                    matrixArray[i][j] += m1.get(i, n) * m2.get(n, j);
+    /*
+     * Adds the products over inner indices ll to lEnd to one block of c. Two
+     * rows of a and two columns of b are read together, giving four separate
+     * sums for the CPU to work on at once and half the loads.
+     */
+    private static void multiplyBlock(double[] a, double[] bt, double[] c,
+            int k, int p, int ii, int iEnd, int jj, int jEnd, int ll,
+            int lEnd) {
+
+        int i = ii;
+        for (; i + 1 < iEnd; i += 2) {
+            int a0 = i * k;
+            int a1 = a0 + k;
+            int j = jj;
+
+            for (; j + 1 < jEnd; j += 2) {
+                int b0 = j * k;
+                int b1 = b0 + k;
+                double c00 = c[i * p + j];
+                double c01 = c[i * p + j + 1];
+                double c10 = c[(i + 1) * p + j];
+                double c11 = c[(i + 1) * p + j + 1];
+
+                for (int l = ll; l < lEnd; l++) {
+                    double x0 = a[a0 + l];
+                    double x1 = a[a1 + l];
+                    double y0 = bt[b0 + l];
+                    double y1 = bt[b1 + l];
+                    c00 += x0 * y0;
+                    c01 += x0 * y1;
+                    c10 += x1 * y0;
+                    c11 += x1 * y1;
                 }
+
+                c[i * p + j] = c00;
+                c[i * p + j + 1] = c01;
+                c[(i + 1) * p + j] = c10;
+                c[(i + 1) * p + j + 1] = c11;
+            }
+
+            if (j < jEnd) {
+                c[i * p + j] = dot(a, a0, bt, j * k, ll, lEnd, c[i * p + j]);
+                c[(i + 1) * p + j] = dot(a, a1, bt, j * k, ll, lEnd,
+                        c[(i + 1) * p + j]);
             }
         }
 
-        return new Matrix(matrixArray);
+        if (i < iEnd) {
+            for (int j = jj; j < jEnd; j++) {
+                c[i * p + j] = dot(a, i * k, bt, j * k, ll, lEnd,
+                        c[i * p + j]);
+            }
+        }
+    }
+
+    private static double dot(double[] a, int aRow, double[] bt, int bRow,
+            int from, int to, double sum) {
+        for (int l = from; l < to; l++) {
+            sum += a[aRow + l] * bt[bRow + l];
+        }
+        return sum;
     }
 
     /**
@@ -360,12 +462,7 @@ public class Matrix {
      * @return this Matrix object
      */
     public Matrix fill(double val) {
-        for (int i = 0; i < this.rows; i++) {
-            for (int j = 0; j < this.cols; j++) {
-                this.matrix[i][j] = val;
-            }
-        }
-
+        Arrays.fill(data, val);
         return this;
     }
 
@@ -379,13 +476,7 @@ public class Matrix {
      * @return new Matrix object
      */
     public static Matrix fill(Matrix m, double val) {
-        Matrix mat = Matrix.clone(m);
-        for (int i = 0; i < mat.rows(); i++) {
-            for (int j = 0; j < mat.cols(); j++) {
-                mat.set(val, i, j);
-            }
-        }
-        return mat;
+        return Matrix.clone(m).fill(val);
     }
 
     /**
@@ -396,7 +487,7 @@ public class Matrix {
      * @return this Matrix object
      */
     public Matrix copy(Matrix m) {
-        this.matrix = Matrix.toArray(m);
+        this.data = m.data.clone();
         this.rows = m.rows();
         this.cols = m.cols();
 
@@ -412,7 +503,7 @@ public class Matrix {
      * @return new Matrix object containing the original's data
      */
     public static Matrix clone(Matrix m) {
-        return new Matrix(Matrix.toArray(m));
+        return new Matrix(m.rows, m.cols, m.data.clone());
     }
 
     /**
@@ -443,9 +534,7 @@ public class Matrix {
         double[][] arrCopy = new double[m.rows()][m.cols()];
 
         for (int i = 0; i < m.rows(); i++) {
-            for (int j = 0; j < m.cols(); j++) {
-                arrCopy[i][j] = m.get(i, j);
-            }
+            System.arraycopy(m.data, i * m.cols, arrCopy[i], 0, m.cols);
         }
 
         return arrCopy;
@@ -479,7 +568,7 @@ public class Matrix {
      * @return the value stored at the row and column index specified.
      */
     public double get(int rowIndex, int colIndex) {
-        return this.matrix[rowIndex][colIndex];
+        return this.data[index(rowIndex, colIndex)];
     }
 
     /**
@@ -493,7 +582,21 @@ public class Matrix {
      *            is the column number.
      */
     public void set(double newValue, int rowIndex, int colIndex) {
-        this.matrix[rowIndex][colIndex] = newValue;
+        this.data[index(rowIndex, colIndex)] = newValue;
+    }
+
+    /*
+     * A column past the end would otherwise silently read the next row.
+     */
+    private int index(int rowIndex, int colIndex) {
+        if (rowIndex < 0 || rowIndex >= rows || colIndex < 0
+                || colIndex >= cols) {
+            throw new IndexOutOfBoundsException(
+                    "(" + rowIndex + ", " + colIndex + ") is outside a "
+                            + rows + "x" + cols + " matrix.");
+        }
+
+        return rowIndex * cols + colIndex;
     }
 
     @Override
@@ -501,7 +604,7 @@ public class Matrix {
         final int prime = 31;
         int result = 1;
         result = prime * result + cols;
-        result = prime * result + Arrays.deepHashCode(matrix);
+        result = prime * result + Arrays.hashCode(data);
         result = prime * result + rows;
         return result;
     }
@@ -522,7 +625,7 @@ public class Matrix {
 
         Matrix m = (Matrix) obj;
         if (this.cols == m.cols() && this.rows == m.rows()
-                && Arrays.deepEquals(this.matrix, m.matrix)) {
+                && Arrays.equals(this.data, m.data)) {
             return true;
         }
 
@@ -544,8 +647,8 @@ public class Matrix {
         // absolute value of every number
         for (int i = 0; i < this.rows; i++) {
             for (int j = 0; j < this.cols; j++) {
-                if (Math.abs(this.matrix[i][j]) > longestVal) {
-                    longestVal = Math.abs(this.matrix[i][j]);
+                if (Math.abs(this.data[i * this.cols + j]) > longestVal) {
+                    longestVal = Math.abs(this.data[i * this.cols + j]);
                 }
             }
         }
@@ -586,7 +689,7 @@ public class Matrix {
 
             for (int j = 0; j < this.cols; j++) {
                 values[j] = String.format("%." + formatDecimalPlaces + "f",
-                        this.matrix[i][j]);
+                        this.data[i * this.cols + j]);
             }
 
             // Create and append row numbers and add spaces to make matrix
@@ -605,4 +708,47 @@ public class Matrix {
 
         return stringMatrix.toString();
     }
+
+    /*
+     * Multiplies a range of blocks of rows, splitting it in half until one
+     * block is left. Tasks write to separate rows of the product.
+     */
+    private static final class MultiplyTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] a;
+        private final double[] bt;
+        private final double[] c;
+        private final int n;
+        private final int k;
+        private final int p;
+        private final int from;
+        private final int to;
+
+        MultiplyTask(double[] a, double[] bt, double[] c, int n, int k, int p,
+                int from, int to) {
+            this.a = a;
+            this.bt = bt;
+            this.c = c;
+            this.n = n;
+            this.k = k;
+            this.p = p;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                multiplyRows(a, bt, c, k, p, from * BLOCK,
+                        Math.min(to * BLOCK, n));
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new MultiplyTask(a, bt, c, n, k, p, from, mid),
+                    new MultiplyTask(a, bt, c, n, k, p, mid, to));
+        }
+    }
 }
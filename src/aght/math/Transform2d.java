@@ -0,0 +1,292 @@
+package aght.math;
+
+/**
+ * A class to represent a two dimensional affine transform as a 2x3 matrix,
+ * mapping a point (x, y) to:
+ *
+ * <pre>
+ * [  x' ]   [  m00   m01   m02  ] [  x  ]
+ * [  y' ] = [  m10   m11   m12  ] [  y  ]
+ *                                 [  1  ]
+ * </pre>
+ *
+ * The transform is mutable so one instance can be reused for every frame, and
+ * it is applied in place to vectors or to whole arrays of interleaved
+ * coordinates without allocating. The sine and cosine of the last rotation
+ * are kept, so setting a new pose with the same rotation does not compute
+ * them again.
+ *
+ * @author Andy Tang
+ * @version 1.0
+ */
+public class Transform2d {
+
+    private double m00 = 1;
+    private double m01;
+    private double m02;
+    private double m10;
+    private double m11 = 1;
+    private double m12;
+
+    /**
+     * Last rotation set, in radians, and its cosine and sine.
+     */
+    private double angle;
+    private double cos = 1;
+    private double sin;
+
+    /**
+     * Constructs an identity transform.
+     */
+    public Transform2d() {
+    }
+
+    /**
+     * Constructs a transform from the values of its matrix.
+     *
+     * @param m00
+     *            the x scale and rotation component
+     * @param m01
+     *            the x shear and rotation component
+     * @param m02
+     *            the x translation
+     * @param m10
+     *            the y shear and rotation component
+     * @param m11
+     *            the y scale and rotation component
+     * @param m12
+     *            the y translation
+     */
+    public Transform2d(double m00, double m01, double m02, double m10,
+            double m11, double m12) {
+        set(m00, m01, m02, m10, m11, m12);
+    }
+
+    /**
+     * Sets the values of the matrix.
+     *
+     * @param m00
+     *            the x scale and rotation component
+     * @param m01
+     *            the x shear and rotation component
+     * @param m02
+     *            the x translation
+     * @param m10
+     *            the y shear and rotation component
+     * @param m11
+     *            the y scale and rotation component
+     * @param m12
+     *            the y translation
+     * @return this Transform2d object
+     */
+    public Transform2d set(double m00, double m01, double m02, double m10,
+            double m11, double m12) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        return this;
+    }
+
+    /**
+     * Resets this transform so it leaves points unchanged.
+     *
+     * @return this Transform2d object
+     */
+    public Transform2d setIdentity() {
+        return set(1, 0, 0, 0, 1, 0);
+    }
+
+    /**
+     * Sets this transform to a rotation about an anchor point.
+     *
+     * @param angle
+     *            the angle to rotate by (radians)
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @return this Transform2d object
+     */
+    public Transform2d setRotation(double angle, double anchorX,
+            double anchorY) {
+        return setPose(0, 0, angle, 1, 1, anchorX, anchorY);
+    }
+
+    /**
+     * Sets this transform to a scale about an anchor point.
+     *
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @return this Transform2d object
+     */
+    public Transform2d setScale(double scaleX, double scaleY, double anchorX,
+            double anchorY) {
+        return set(scaleX, 0, anchorX - scaleX * anchorX, 0, scaleY,
+                anchorY - scaleY * anchorY);
+    }
+
+    /**
+     * Sets this transform to a pose: scaling, then rotating about a pivot
+     * point, then translating. This is the order in which a JavaFX node
+     * applies its scale, rotate and translate properties.
+     *
+     * @param x
+     *            the translation along the x axis
+     * @param y
+     *            the translation along the y axis
+     * @param angle
+     *            the angle to rotate by (radians)
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @param pivotX
+     *            x component of the point rotated and scaled about
+     * @param pivotY
+     *            y component of the point rotated and scaled about
+     * @return this Transform2d object
+     */
+    public Transform2d setPose(double x, double y, double angle,
+            double scaleX, double scaleY, double pivotX, double pivotY) {
+
+        if (angle != this.angle) {
+            this.angle = angle;
+            this.cos = Math.cos(angle);
+            this.sin = Math.sin(angle);
+        }
+
+        m00 = cos * scaleX;
+        m01 = -sin * scaleY;
+        m10 = sin * scaleX;
+        m11 = cos * scaleY;
+        m02 = x + pivotX - (m00 * pivotX + m01 * pivotY);
+        m12 = y + pivotY - (m10 * pivotX + m11 * pivotY);
+
+        return this;
+    }
+
+    /**
+     * Transforms a vector in place.
+     *
+     * @param vec
+     *            the Vector2d object to transform
+     * @return the transformed Vector2d object
+     */
+    public Vector2d apply(Vector2d vec) {
+        double x = vec.x;
+        vec.x = m00 * x + m01 * vec.y + m02;
+        vec.y = m10 * x + m11 * vec.y + m12;
+        return vec;
+    }
+
+    /**
+     * Transforms an array of points interleaved as x0, y0, x1, y1, ... The
+     * source and destination may be the same array.
+     *
+     * @param src
+     *            the points to transform
+     * @param dst
+     *            the array to write the transformed points to
+     */
+    public void apply(double[] src, double[] dst) {
+        apply(src, 0, dst, 0, src.length / 2);
+    }
+
+    /**
+     * Transforms a range of an array of points interleaved as x0, y0, x1, y1,
+     * ... The source and destination may be the same array.
+     *
+     * @param src
+     *            the points to transform
+     * @param srcOffset
+     *            the index in src of the x component of the first point
+     * @param dst
+     *            the array to write the transformed points to
+     * @param dstOffset
+     *            the index in dst to start writing at
+     * @param count
+     *            the number of points
+     */
+    public void apply(double[] src, int srcOffset, double[] dst,
+            int dstOffset, int count) {
+
+        for (int i = 0; i < count; i++) {
+            double x = src[srcOffset + 2 * i];
+            double y = src[srcOffset + 2 * i + 1];
+            dst[dstOffset + 2 * i] = m00 * x + m01 * y + m02;
+            dst[dstOffset + 2 * i + 1] = m10 * x + m11 * y + m12;
+        }
+    }
+
+    /**
+     * Transforms an array of normals interleaved as x0, y0, x1, y1, ... to
+     * unit length normals of the transformed shape. Normals are transformed by
+     * the inverse transpose of the linear part, here its cofactor matrix as
+     * they are normalized afterwards anyway. The source and destination may be
+     * the same array.
+     *
+     * @param src
+     *            the normals to transform
+     * @param dst
+     *            the array to write the transformed normals to
+     */
+    public void applyNormals(double[] src, double[] dst) {
+        for (int i = 0; i < src.length; i += 2) {
+            double nx = m11 * src[i] - m10 * src[i + 1];
+            double ny = -m01 * src[i] + m00 * src[i + 1];
+            double length = Math.sqrt(nx * nx + ny * ny);
+
+            dst[i] = nx / length;
+            dst[i + 1] = ny / length;
+        }
+    }
+
+    /**
+     * Calculates the determinant of the linear part, negative when the
+     * transform mirrors.
+     *
+     * @return the determinant
+     */
+    public double determinant() {
+        return m00 * m11 - m01 * m10;
+    }
+
+    public double getM00() {
+        return m00;
+    }
+
+    public double getM01() {
+        return m01;
+    }
+
+    public double getM02() {
+        return m02;
+    }
+
+    public double getM10() {
+        return m10;
+    }
+
+    public double getM11() {
+        return m11;
+    }
+
+    public double getM12() {
+        return m12;
+    }
+
+    @Override
+    public String toString() {
+        return "[[" + m00 + ", " + m01 + ", " + m02 + "], [" + m10 + ", " + m11
+                + ", " + m12 + "]]";
+    }
+}
@@ -81,6 +81,23 @@ public class Vector2d {
         return new Vector2d(vec1.x + vec2.x, vec1.y + vec2.y);
     }
 
+    /**
+     * Adds two vectors into a given vector instead of a new one.
+     * 
+     * @param vec1
+     *            the first Vector2d object.
+     * @param vec2
+     *            the second Vector2d object.
+     * @param dst
+     *            the Vector2d object to store the sum in, may be one of the
+     *            other two.
+     * @return dst
+     */
+    public static Vector2d add(Vector2d vec1, Vector2d vec2, Vector2d dst) {
+        dst.set(vec1.x + vec2.x, vec1.y + vec2.y);
+        return dst;
+    }
+
     /**
      * Subtracts this vector from another vector.
      * 
@@ -108,6 +125,23 @@ public class Vector2d {
         return new Vector2d(vec1.x - vec2.x, vec1.y - vec2.y);
     }
 
+    /**
+     * Subtracts two vectors into a given vector instead of a new one.
+     * 
+     * @param vec1
+     *            the first Vector2d object.
+     * @param vec2
+     *            the second Vector2d object.
+     * @param dst
+     *            the Vector2d object to store the difference in, may be one
+     *            of the other two.
+     * @return dst
+     */
+    public static Vector2d sub(Vector2d vec1, Vector2d vec2, Vector2d dst) {
+        dst.set(vec1.x - vec2.x, vec1.y - vec2.y);
+        return dst;
+    }
+
     /**
      * Multiply this vector by a scalar.
      * 
@@ -170,8 +204,23 @@ public class Vector2d {
      * @return the perpendicular vector
      */
     public Vector2d perp(boolean negate) {
+        return perp(negate, new Vector2d(0, 0));
+    }
+
+    /**
+     * Gets the perpendicular vector to this vector into a given vector.
+     * 
+     * @param negate
+     *            whether to negate the perpendicular vector
+     * @param dst
+     *            the Vector2d object to store the perpendicular vector in, may
+     *            be this vector
+     * @return dst
+     */
+    public Vector2d perp(boolean negate, Vector2d dst) {
         int n = negate == true ? -1 : 1;
-        return new Vector2d(n * -y, n * x);
+        dst.set(n * -y, n * x);
+        return dst;
     }
 
     /**
@@ -398,8 +447,6 @@ public class Vector2d {
     }
 
     /**
-     * WARNING: MAY NOT WORK DUE TO MODIFYING, BUT BEING TOO LAZY TO TEST!
-     * 
      * Scales this vector by another vector with an anchor point as the origin.
      * This operation moves translates the coordinates so that the anchor point
      * is the origin, then performs the scaling operation, lastly translating so
@@ -423,27 +470,30 @@ public class Vector2d {
      */
     public Vector2d scale(Vector2d anchor, Vector2d vec) {
         if (anchor == null) {
-            anchor = new Vector2d(0, 0);
+            return scale(0, 0, vec.x, vec.y);
         }
 
-        this.translate(anchor.mult(-1));
-
-        // @formatter:off
-        double[][] scaleMatrix = { { vec.getX(), 0 }, 
-                                   { 0, vec.getY() }};
-
-        double[][] vectorMatrix = { { this.x }, 
-                                    { this.y }};
-        // @formatter:on
-
-        Matrix m1 = new Matrix(scaleMatrix);
-        Matrix m2 = new Matrix(vectorMatrix);
-        Matrix r0 = m1.mult(m2);
-
-        this.x = r0.get(0, 0);
-        this.y = r0.get(1, 0);
+        return scale(anchor.x, anchor.y, vec.x, vec.y);
+    }
 
-        this.translate(anchor.mult(-1));
+    /**
+     * Scales this vector about an anchor point, see
+     * {@link #scale(Vector2d, Vector2d)}.
+     * 
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @param scaleX
+     *            the scale along the x axis
+     * @param scaleY
+     *            the scale along the y axis
+     * @return this Vector2d object.
+     */
+    public Vector2d scale(double anchorX, double anchorY, double scaleX,
+            double scaleY) {
+        this.x = anchorX + (this.x - anchorX) * scaleX;
+        this.y = anchorY + (this.y - anchorY) * scaleY;
 
         return this;
     }
@@ -473,30 +523,34 @@ public class Vector2d {
      */
     public Vector2d rotate(Vector2d anchor, double a) {
         if (anchor == null) {
-            anchor = new Vector2d(0, 0);
-        }
-
-        if (this.x == anchor.x && this.y == anchor.y) {
-            return this;
+            return rotate(0, 0, Math.cos(a), Math.sin(a));
         }
 
-        this.translate(anchor.mult(-1));
-
-        // @formatter:off
-        double[][] rotationMatrix = { { Math.cos(a), -Math.sin(a)},
-                                      { Math.sin(a), Math.cos(a) } };
-
-        double[][] vectorMatrix = { { this.x },
-                                    { this.y }};
-        // @formatter:on
-        Matrix m1 = new Matrix(rotationMatrix);
-        Matrix m2 = new Matrix(vectorMatrix);
-        Matrix r0 = m1.mult(m2);
+        return rotate(anchor.x, anchor.y, Math.cos(a), Math.sin(a));
+    }
 
-        this.x = r0.get(0, 0);
-        this.y = r0.get(1, 0);
+    /**
+     * Rotates this vector around an anchor point by an angle given as its
+     * cosine and sine, so rotating many vectors by the same angle computes
+     * them only once. For whole arrays of points use {@link Transform2d}.
+     * 
+     * @param anchorX
+     *            x component of the anchor point
+     * @param anchorY
+     *            y component of the anchor point
+     * @param cos
+     *            the cosine of the angle
+     * @param sin
+     *            the sine of the angle
+     * @return this Vector2d object.
+     */
+    public Vector2d rotate(double anchorX, double anchorY, double cos,
+            double sin) {
+        double dx = this.x - anchorX;
+        double dy = this.y - anchorY;
 
-        this.translate(anchor.mult(-1));
+        this.x = anchorX + cos * dx - sin * dy;
+        this.y = anchorY + sin * dx + cos * dy;
 
         return this;
     }
@@ -16,19 +16,14 @@ import javafx.scene.transform.Translate;
  */
 public class Polygon extends Shape {
 
-    private boolean isConvex;
-
     public Polygon(double x, double y, double radius, double sides) {
         super(generateEvenPoly(radius, sides), createSVGPath(generateEvenPoly(radius, sides)));
-        setTranslateX(x);
-        setTranslateY(y);
-        isConvex = true;
+        setX(x);
+        setY(y);
     }
 
     private Polygon(Vector2d[] vertices, Vector2d layout) {
         super(vertices, createSVGPath(vertices), layout);
-
-        isConvex = checkIfConvex();
     }
 
     private static Vector2d[] generateEvenPoly(double radius, double sides) {
@@ -94,34 +89,6 @@ public class Polygon extends Shape {
         return svgPath.toString();
     }
 
-    private boolean checkIfConvex() {
-        Vector2d[] vertices = this.getVertices();
-
-        // If user attempts to close the shape, ignore the closing vertex to
-        // avoid calculation errors
-        int verticesLength = vertices.length;
-        if (vertices[0].equals(vertices[vertices.length - 1])) {
-            verticesLength--;
-        }
-
-        Vector2d prev = vertices[verticesLength - 2];
-        Vector2d curr = vertices[verticesLength - 1];
-        Vector2d next = vertices[0];
-
-        boolean isCCW = Vector2d.cross3(prev, curr, next) > 0;
-
-        for (int i = 1; i < verticesLength; i++) {
-            prev = curr;
-            curr = next;
-            next = vertices[i];
-            if ((Vector2d.cross3(prev, curr, next) > 0) != isCCW) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     public static Polygon createRandomPolygon(double x, double y, double radius,
                                               double n) {
 
@@ -139,6 +106,6 @@ public class Polygon extends Shape {
     }
 
     public boolean isConvex() {
-        return isConvex;
+        return getBody().isConvex();
     }
 }
@@ -1,93 +1,96 @@
 package aght.shape;
 
-import java.util.ArrayList;
-
+import aght.collision.Body;
 import aght.math.Vector2d;
 import javafx.scene.shape.SVGPath;
 
 /**
  * Shape.
+ * <p>
+ * JavaFX view of a collision {@link Body}. The body holds the vertices and the
+ * pose of the shape, this node only mirrors them. Move the shape through the
+ * methods of this class, or move the body directly and call {@link #sync()}
+ * afterwards; setting the translate, rotate or scale properties of the node
+ * itself does not affect the body.
+ * <p>
+ * Like any JavaFX node the shape belongs to the JavaFX application thread.
+ * Collision queries only need the body, which can be handed to other threads
+ * as described in {@link Body}.
  *
  * @author Andy Tang
  * @version 2018
  */
 public class Shape extends SVGPath {
 
-    private Vector2d[] vertices;
+    private final Body body;
 
     public Shape(Vector2d[] vertices, String svgPath) {
+        this.body = new Body(vertices);
         this.setContent(svgPath);
-        this.vertices = vertices;
+        sync();
     }
 
     protected Shape(Vector2d[] vertices, String svgPath, Vector2d layout) {
-        setLayoutPosition(layout.negate());
+        this.body = new Body(vertices, layout.negate());
         this.setContent(svgPath);
-        this.vertices = vertices;
+        sync();
     }
 
-    public Vector2d[] getVertices() {
-        ArrayList<Double> temp = new ArrayList<Double>();
-
-        for (Vector2d vertex : vertices) {
-            temp.add(vertex.x);
-            temp.add(vertex.y);
-        }
-
-        double[] xy = temp.stream().mapToDouble(Double::doubleValue).toArray();
-
-        this.getLocalToParentTransform().transform2DPoints(xy, 0, xy, 0,
-                xy.length / 2);
-
-        double[] x = new double[vertices.length];
-        double[] y = new double[vertices.length];
-
-        int n = 0;
-        for (int i = 0; i < xy.length; i += 2) {
-            x[n] = xy[i];
-            n++;
-        }
-
-        n = 0;
-        for (int i = 1; i < xy.length; i += 2) {
-            y[n] = xy[i];
-            n++;
-        }
+    /**
+     * Copies the pose of the body to this node. Must be called on the JavaFX
+     * application thread.
+     */
+    public void sync() {
+        setLayoutX(body.getOffsetX());
+        setLayoutY(body.getOffsetY());
+        setTranslateX(body.getX());
+        setTranslateY(body.getY());
+        setRotate(body.getRotation());
+        setScaleX(body.getScaleX());
+        setScaleY(body.getScaleY());
+    }
 
-        Vector2d[] transformed = new Vector2d[vertices.length];
-        for (int i = 0; i < transformed.length; i++) {
-            transformed[i] = new Vector2d(x[i], y[i]);
-        }
+    public Body getBody() {
+        return body;
+    }
 
-        return transformed;
+    public Vector2d[] getVertices() {
+        return body.getVertices();
     }
 
-    private void setLayoutPosition(Vector2d pos) {
-        setLayoutX(pos.x);
-        setLayoutY(pos.y);
+    public Vector2d[][] getPieces() {
+        return body.getPieces();
     }
 
     public void setX(double x) {
-        this.setTranslateX(x);
+        body.setX(x);
+        sync();
     }
 
     public void setY(double y) {
-        this.setTranslateY(y);
+        body.setY(y);
+        sync();
     }
 
     public double getX() {
-        return this.getTranslateX();
+        return body.getX();
     }
 
     public double getY() {
-        return this.getTranslateY();
+        return body.getY();
     }
 
     public void setVertices(Vector2d[] n) {
-        vertices = n;
+        body.setVertices(n);
     }
 
     public void rotate(double angle) {
-        setRotate(angle);
+        body.setRotation(angle);
+        sync();
+    }
+
+    public void setScale(double scaleX, double scaleY) {
+        body.setScale(scaleX, scaleY);
+        sync();
     }
 }
@@ -0,0 +1,844 @@
+package aght.shape.decomposition;
+
+import java.util.Arrays;
+
+/**
+ * EarClipper.
+ * <p>
+ * Triangulates polygons with holes by ear clipping over a doubly linked ring
+ * of vertices, following the approach of earcut. Vertices live in primitive
+ * arrays indexed by node, so removing an ear is O(1). Holes are first joined
+ * to the outer ring through bridges to visible vertices. On larger polygons
+ * the vertices are also sorted along a z-order curve, so checking that no
+ * reflex vertex lies inside a candidate ear only visits the vertices whose
+ * curve index falls within the bounds of the ear, which makes the whole
+ * triangulation close to O(n log n) on typical outlines.
+ * <p>
+ * When no ear is left, the ring is cleaned of duplicate and collinear
+ * vertices, small self intersections are cut off, and as a last resort the
+ * ring is split along a valid diagonal and both halves are triangulated on
+ * their own, so degenerate input still gives a result.
+ *
+ * @author Andy Tang
+ * @version 2018
+ */
+public class EarClipper {
+
+    private static final int NONE = -1;
+
+    /**
+     * Number of vertices from which candidate ears are checked through the
+     * z-order curve instead of against the whole ring.
+     */
+    private static final int HASH_MIN_VERTICES = 80;
+
+    private final double[] xy;
+
+    /*
+     * Nodes of the ring: the index of the vertex, its position, its
+     * neighbours along the ring and along the z-order curve, and its index on
+     * the curve. Bridges and splits duplicate vertices, so there can be more
+     * nodes than vertices.
+     */
+    private int[] vertex;
+    private double[] x;
+    private double[] y;
+    private int[] prev;
+    private int[] next;
+    private int[] z;
+    private int[] prevZ;
+    private int[] nextZ;
+    private boolean[] steiner;
+    private int size;
+
+    private int[] triangles;
+    private int count;
+
+    private double minX;
+    private double minY;
+    private double invSize;
+
+    private EarClipper(double[] xy, int vertices) {
+        this.xy = xy;
+
+        int capacity = vertices + 16;
+        vertex = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        z = new int[capacity];
+        prevZ = new int[capacity];
+        nextZ = new int[capacity];
+        steiner = new boolean[capacity];
+
+        triangles = new int[Math.max(3, 3 * (vertices - 2))];
+    }
+
+    /**
+     * Triangulates a polygon.
+     *
+     * @param xy
+     *            the vertices, interleaved as x0, y0, x1, y1, ...
+     * @return the vertex indices of the triangles, three per triangle
+     */
+    public static int[] triangulate(double[] xy) {
+        return triangulate(xy, null);
+    }
+
+    /**
+     * Triangulates a polygon with holes. The outer ring may wind either way,
+     * the triangles always have a positive signed area.
+     *
+     * @param xy
+     *            the vertices of the outer ring followed by the vertices of
+     *            every hole, interleaved as x0, y0, x1, y1, ...
+     * @param holes
+     *            the index of the first vertex of every hole, in ascending
+     *            order, or null if there are none
+     * @return the vertex indices of the triangles, three per triangle
+     */
+    public static int[] triangulate(double[] xy, int[] holes) {
+        int vertices = xy.length / 2;
+        boolean hasHoles = holes != null && holes.length > 0;
+        int outerLength = hasHoles ? holes[0] : vertices;
+
+        if (outerLength < 3) {
+            return new int[0];
+        }
+
+        EarClipper clipper = new EarClipper(xy, vertices);
+        return clipper.run(outerLength, hasHoles ? holes : null);
+    }
+
+    private int[] run(int outerLength, int[] holes) {
+        int outer = ring(0, outerLength, true);
+
+        if (outer == NONE || next[outer] == prev[outer]) {
+            return new int[0];
+        }
+
+        if (holes != null) {
+            outer = eliminateHoles(holes, outer);
+        }
+
+        if (xy.length / 2 > HASH_MIN_VERTICES) {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < outerLength; i++) {
+                minX = Math.min(minX, xy[2 * i]);
+                minY = Math.min(minY, xy[2 * i + 1]);
+                maxX = Math.max(maxX, xy[2 * i]);
+                maxY = Math.max(maxY, xy[2 * i + 1]);
+            }
+
+            // Curve coordinates fit in 15 bits each
+            double extent = Math.max(maxX - minX, maxY - minY);
+            invSize = extent != 0 ? 32767 / extent : 0;
+        }
+
+        clip(outer, 0);
+
+        return Arrays.copyOf(triangles, count);
+    }
+
+    /*
+     * Links the vertices from start up to end into a ring, wound counter
+     * clockwise for the outer ring and clockwise for holes. Returns the last
+     * node.
+     */
+    private int ring(int start, int end, boolean outer) {
+        int last = NONE;
+
+        if (outer == (signedArea(start, end) > 0)) {
+            for (int i = start; i < end; i++) {
+                last = insert(i, last);
+            }
+        } else {
+            for (int i = end - 1; i >= start; i--) {
+                last = insert(i, last);
+            }
+        }
+
+        if (last != NONE && same(last, next[last])) {
+            remove(last);
+            last = next[last];
+        }
+
+        return last;
+    }
+
+    /*
+     * Clips ears off the ring until one triangle is left. Passes: 0 on the
+     * ring as given, 1 after removing duplicate and collinear vertices, 2
+     * after cutting off self intersections, then the ring is split.
+     */
+    private void clip(int ear, int pass) {
+        if (ear == NONE) {
+            return;
+        }
+
+        if (pass == 0 && invSize != 0) {
+            indexCurve(ear);
+        }
+
+        int stop = ear;
+
+        while (prev[ear] != next[ear]) {
+            int a = prev[ear];
+            int c = next[ear];
+
+            if (invSize != 0 ? isEarHashed(ear) : isEar(ear)) {
+                addTriangle(vertex[a], vertex[ear], vertex[c]);
+                remove(ear);
+
+                // Skipping the next vertex gives fewer slivers
+                ear = next[c];
+                stop = next[c];
+                continue;
+            }
+
+            ear = c;
+
+            if (ear == stop) {
+                if (pass == 0) {
+                    clip(filter(ear, NONE), 1);
+                } else if (pass == 1) {
+                    ear = cureLocalIntersections(filter(ear, NONE));
+                    clip(ear, 2);
+                } else {
+                    split(ear);
+                }
+
+                break;
+            }
+        }
+    }
+
+    private boolean isEar(int ear) {
+        int a = prev[ear];
+        int b = ear;
+        int c = next[ear];
+
+        // Reflex vertices cannot be ears
+        if (area(a, b, c) >= 0) {
+            return false;
+        }
+
+        double x0 = Math.min(x[a], Math.min(x[b], x[c]));
+        double y0 = Math.min(y[a], Math.min(y[b], y[c]));
+        double x1 = Math.max(x[a], Math.max(x[b], x[c]));
+        double y1 = Math.max(y[a], Math.max(y[b], y[c]));
+
+        for (int p = next[c]; p != a; p = next[p]) {
+            if (blocks(p, a, b, c, x0, y0, x1, y1)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isEarHashed(int ear) {
+        int a = prev[ear];
+        int b = ear;
+        int c = next[ear];
+
+        if (area(a, b, c) >= 0) {
+            return false;
+        }
+
+        double x0 = Math.min(x[a], Math.min(x[b], x[c]));
+        double y0 = Math.min(y[a], Math.min(y[b], y[c]));
+        double x1 = Math.max(x[a], Math.max(x[b], x[c]));
+        double y1 = Math.max(y[a], Math.max(y[b], y[c]));
+
+        // Only nodes with a curve index within the bounds can be inside
+        int minZ = zOrder(x0, y0);
+        int maxZ = zOrder(x1, y1);
+
+        int p = prevZ[ear];
+        int n = nextZ[ear];
+
+        // Walk the curve both ways from the ear
+        while (p != NONE && z[p] >= minZ && n != NONE && z[n] <= maxZ) {
+            if (p != a && p != c && blocks(p, a, b, c, x0, y0, x1, y1)) {
+                return false;
+            }
+            p = prevZ[p];
+
+            if (n != a && n != c && blocks(n, a, b, c, x0, y0, x1, y1)) {
+                return false;
+            }
+            n = nextZ[n];
+        }
+
+        while (p != NONE && z[p] >= minZ) {
+            if (p != a && p != c && blocks(p, a, b, c, x0, y0, x1, y1)) {
+                return false;
+            }
+            p = prevZ[p];
+        }
+
+        while (n != NONE && z[n] <= maxZ) {
+            if (n != a && n != c && blocks(n, a, b, c, x0, y0, x1, y1)) {
+                return false;
+            }
+            n = nextZ[n];
+        }
+
+        return true;
+    }
+
+    /*
+     * Checks if a reflex node lies inside the ear a, b, c.
+     */
+    private boolean blocks(int p, int a, int b, int c, double x0, double y0,
+            double x1, double y1) {
+
+        return x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1
+                && pointInTriangle(x[a], y[a], x[b], y[b], x[c], y[c], x[p],
+                        y[p])
+                && area(prev[p], p, next[p]) >= 0;
+    }
+
+    /*
+     * Cuts off the triangles of small loops where two neighbouring edges
+     * cross.
+     */
+    private int cureLocalIntersections(int start) {
+        int p = start;
+
+        do {
+            int a = prev[p];
+            int b = next[next[p]];
+
+            if (!same(a, b) && intersects(a, p, next[p], b)
+                    && locallyInside(a, b) && locallyInside(b, a)) {
+                addTriangle(vertex[a], vertex[p], vertex[b]);
+
+                remove(next[p]);
+                remove(p);
+
+                p = b;
+                start = b;
+            }
+
+            p = next[p];
+        } while (p != start);
+
+        return filter(p, NONE);
+    }
+
+    /*
+     * Splits the ring along a valid diagonal and triangulates both halves.
+     */
+    private void split(int start) {
+        int a = start;
+
+        do {
+            int b = next[next[a]];
+
+            while (b != prev[a]) {
+                if (vertex[a] != vertex[b] && isValidDiagonal(a, b)) {
+                    int c = splitRing(a, b);
+
+                    a = filter(a, next[a]);
+                    c = filter(c, next[c]);
+
+                    clip(a, 0);
+                    clip(c, 0);
+                    return;
+                }
+
+                b = next[b];
+            }
+
+            a = next[a];
+        } while (a != start);
+    }
+
+    private int eliminateHoles(int[] holes, int outer) {
+        int vertices = xy.length / 2;
+        int[] leftmost = new int[holes.length];
+
+        for (int i = 0; i < holes.length; i++) {
+            int start = holes[i];
+            int end = i < holes.length - 1 ? holes[i + 1] : vertices;
+            int list = ring(start, end, false);
+
+            if (list == next[list]) {
+                steiner[list] = true;
+            }
+
+            leftmost[i] = leftmost(list);
+        }
+
+        // Bridge the holes from left to right, by their leftmost vertex
+        Integer[] order = new Integer[holes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = leftmost[i];
+        }
+        Arrays.sort(order, (p, q) -> Double.compare(x[p], x[q]));
+
+        for (int hole : order) {
+            outer = eliminateHole(hole, outer);
+        }
+
+        return outer;
+    }
+
+    private int eliminateHole(int hole, int outer) {
+        int bridge = findHoleBridge(hole, outer);
+
+        if (bridge == NONE) {
+            return outer;
+        }
+
+        int bridgeReverse = splitRing(bridge, hole);
+
+        filter(bridgeReverse, next[bridgeReverse]);
+        return filter(bridge, next[bridge]);
+    }
+
+    /*
+     * Finds a node of the outer ring visible from the leftmost node of a
+     * hole, by casting a ray to the left and picking the closest edge it
+     * hits, then the reflex node inside the triangle it forms that makes the
+     * smallest angle with the ray.
+     */
+    private int findHoleBridge(int hole, int outer) {
+        double hx = x[hole];
+        double hy = y[hole];
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = NONE;
+
+        int p = outer;
+        do {
+            int n = next[p];
+
+            if (hy <= y[p] && hy >= y[n] && y[n] != y[p]) {
+                double hitX = x[p]
+                        + (hy - y[p]) * (x[n] - x[p]) / (y[n] - y[p]);
+
+                if (hitX <= hx && hitX > qx) {
+                    qx = hitX;
+                    m = x[p] < x[n] ? p : n;
+
+                    if (hitX == hx) {
+                        // The hole touches the outer ring
+                        return m;
+                    }
+                }
+            }
+
+            p = n;
+        } while (p != outer);
+
+        if (m == NONE) {
+            return NONE;
+        }
+
+        int stop = m;
+        double mx = x[m];
+        double my = y[m];
+        double tanMin = Double.POSITIVE_INFINITY;
+
+        p = m;
+        do {
+            if (hx >= x[p] && x[p] >= mx && hx != x[p]
+                    && pointInTriangle(hy < my ? hx : qx, hy, mx, my,
+                            hy < my ? qx : hx, hy, x[p], y[p])) {
+
+                double tan = Math.abs(hy - y[p]) / (hx - x[p]);
+
+                if (locallyInside(p, hole) && (tan < tanMin
+                        || (tan == tanMin && (x[p] > x[m] || (x[p] == x[m]
+                                && sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+
+            p = next[p];
+        } while (p != stop);
+
+        return m;
+    }
+
+    private boolean sectorContainsSector(int m, int p) {
+        return area(prev[m], m, prev[p]) < 0 && area(next[p], m, next[m]) < 0;
+    }
+
+    private int leftmost(int start) {
+        int p = start;
+        int leftmost = start;
+
+        do {
+            if (x[p] < x[leftmost]
+                    || (x[p] == x[leftmost] && y[p] < y[leftmost])) {
+                leftmost = p;
+            }
+            p = next[p];
+        } while (p != start);
+
+        return leftmost;
+    }
+
+    /*
+     * Removes duplicate and collinear nodes between start and end.
+     */
+    private int filter(int start, int end) {
+        if (start == NONE) {
+            return start;
+        }
+        if (end == NONE) {
+            end = start;
+        }
+
+        int p = start;
+        boolean again;
+
+        do {
+            again = false;
+
+            if (!steiner[p] && (same(p, next[p])
+                    || area(prev[p], p, next[p]) == 0)) {
+                remove(p);
+                p = end = prev[p];
+
+                if (p == next[p]) {
+                    break;
+                }
+                again = true;
+            } else {
+                p = next[p];
+            }
+        } while (again || p != end);
+
+        return end;
+    }
+
+    /*
+     * Links the ring along the z-order curve, sorted by curve index.
+     */
+    private void indexCurve(int start) {
+        int p = start;
+
+        do {
+            if (z[p] == 0) {
+                z[p] = zOrder(x[p], y[p]);
+            }
+            prevZ[p] = prev[p];
+            nextZ[p] = next[p];
+            p = next[p];
+        } while (p != start);
+
+        nextZ[prevZ[p]] = NONE;
+        prevZ[p] = NONE;
+
+        sortCurve(p);
+    }
+
+    /*
+     * Bottom up merge sort of the list linked through nextZ.
+     */
+    private void sortCurve(int list) {
+        int inSize = 1;
+        int merges;
+
+        do {
+            int p = list;
+            int tail = NONE;
+            list = NONE;
+            merges = 0;
+
+            while (p != NONE) {
+                merges++;
+
+                int q = p;
+                int pSize = 0;
+                for (int i = 0; i < inSize; i++) {
+                    pSize++;
+                    q = nextZ[q];
+                    if (q == NONE) {
+                        break;
+                    }
+                }
+
+                int qSize = inSize;
+
+                while (pSize > 0 || (qSize > 0 && q != NONE)) {
+                    int e;
+
+                    if (pSize != 0
+                            && (qSize == 0 || q == NONE || z[p] <= z[q])) {
+                        e = p;
+                        p = nextZ[p];
+                        pSize--;
+                    } else {
+                        e = q;
+                        q = nextZ[q];
+                        qSize--;
+                    }
+
+                    if (tail != NONE) {
+                        nextZ[tail] = e;
+                    } else {
+                        list = e;
+                    }
+
+                    prevZ[e] = tail;
+                    tail = e;
+                }
+
+                p = q;
+            }
+
+            nextZ[tail] = NONE;
+            inSize *= 2;
+        } while (merges > 1);
+    }
+
+    /*
+     * Index of a point on the z-order curve, interleaving the bits of its
+     * 15 bit coordinates.
+     */
+    private int zOrder(double px, double py) {
+        int zx = (int) ((px - minX) * invSize);
+        int zy = (int) ((py - minY) * invSize);
+
+        zx = (zx | (zx << 8)) & 0x00FF00FF;
+        zx = (zx | (zx << 4)) & 0x0F0F0F0F;
+        zx = (zx | (zx << 2)) & 0x33333333;
+        zx = (zx | (zx << 1)) & 0x55555555;
+
+        zy = (zy | (zy << 8)) & 0x00FF00FF;
+        zy = (zy | (zy << 4)) & 0x0F0F0F0F;
+        zy = (zy | (zy << 2)) & 0x33333333;
+        zy = (zy | (zy << 1)) & 0x55555555;
+
+        return zx | (zy << 1);
+    }
+
+    private boolean isValidDiagonal(int a, int b) {
+        return vertex[next[a]] != vertex[b] && vertex[prev[a]] != vertex[b]
+                && !intersectsRing(a, b)
+                && (locallyInside(a, b) && locallyInside(b, a)
+                        && middleInside(a, b)
+                        && (area(prev[a], a, prev[b]) != 0
+                                || area(a, prev[b], b) != 0)
+                        || same(a, b) && area(prev[a], a, next[a]) > 0
+                                && area(prev[b], b, next[b]) > 0);
+    }
+
+    /*
+     * Twice the area of the triangle p, q, r, negative when it turns counter
+     * clockwise.
+     */
+    private double area(int p, int q, int r) {
+        return (y[q] - y[p]) * (x[r] - x[q]) - (x[q] - x[p]) * (y[r] - y[q]);
+    }
+
+    private boolean same(int p, int q) {
+        return x[p] == x[q] && y[p] == y[q];
+    }
+
+    private boolean intersects(int p1, int q1, int p2, int q2) {
+        int o1 = sign(area(p1, q1, p2));
+        int o2 = sign(area(p1, q1, q2));
+        int o3 = sign(area(p2, q2, p1));
+        int o4 = sign(area(p2, q2, q1));
+
+        if (o1 != o2 && o3 != o4) {
+            return true;
+        }
+
+        // Collinear cases
+        return o1 == 0 && onSegment(p1, p2, q1)
+                || o2 == 0 && onSegment(p1, q2, q1)
+                || o3 == 0 && onSegment(p2, p1, q2)
+                || o4 == 0 && onSegment(p2, q1, q2);
+    }
+
+    /*
+     * Checks if q lies on the segment p, r, given that the three are
+     * collinear.
+     */
+    private boolean onSegment(int p, int q, int r) {
+        return x[q] <= Math.max(x[p], x[r]) && x[q] >= Math.min(x[p], x[r])
+                && y[q] <= Math.max(y[p], y[r]) && y[q] >= Math.min(y[p], y[r]);
+    }
+
+    private static int sign(double value) {
+        return value > 0 ? 1 : value < 0 ? -1 : 0;
+    }
+
+    private boolean intersectsRing(int a, int b) {
+        int p = a;
+
+        do {
+            int n = next[p];
+
+            if (vertex[p] != vertex[a] && vertex[n] != vertex[a]
+                    && vertex[p] != vertex[b] && vertex[n] != vertex[b]
+                    && intersects(p, n, a, b)) {
+                return true;
+            }
+
+            p = n;
+        } while (p != a);
+
+        return false;
+    }
+
+    /*
+     * Checks if the diagonal a, b starts into the inside of the ring at a.
+     */
+    private boolean locallyInside(int a, int b) {
+        return area(prev[a], a, next[a]) < 0
+                ? area(a, b, next[a]) >= 0 && area(a, prev[a], b) >= 0
+                : area(a, b, prev[a]) < 0 || area(a, next[a], b) < 0;
+    }
+
+    /*
+     * Checks if the middle of the diagonal a, b is inside the ring.
+     */
+    private boolean middleInside(int a, int b) {
+        double px = (x[a] + x[b]) / 2;
+        double py = (y[a] + y[b]) / 2;
+        boolean inside = false;
+
+        int p = a;
+        do {
+            int n = next[p];
+
+            if (((y[p] > py) != (y[n] > py)) && y[n] != y[p]
+                    && px < (x[n] - x[p]) * (py - y[p]) / (y[n] - y[p])
+                            + x[p]) {
+                inside = !inside;
+            }
+
+            p = n;
+        } while (p != a);
+
+        return inside;
+    }
+
+    /*
+     * Splits the ring along the diagonal a, b into two rings, duplicating a
+     * and b. Returns the copy of b.
+     */
+    private int splitRing(int a, int b) {
+        int a2 = node(vertex[a]);
+        int b2 = node(vertex[b]);
+        int an = next[a];
+        int bp = prev[b];
+
+        next[a] = b;
+        prev[b] = a;
+
+        next[a2] = an;
+        prev[an] = a2;
+
+        next[b2] = a2;
+        prev[a2] = b2;
+
+        next[bp] = b2;
+        prev[b2] = bp;
+
+        return b2;
+    }
+
+    /*
+     * Adds a node for a vertex after last, or as a ring of its own.
+     */
+    private int insert(int i, int last) {
+        int p = node(i);
+
+        if (last == NONE) {
+            prev[p] = p;
+            next[p] = p;
+        } else {
+            next[p] = next[last];
+            prev[p] = last;
+            prev[next[last]] = p;
+            next[last] = p;
+        }
+
+        return p;
+    }
+
+    private void remove(int p) {
+        prev[next[p]] = prev[p];
+        next[prev[p]] = next[p];
+
+        if (prevZ[p] != NONE) {
+            nextZ[prevZ[p]] = nextZ[p];
+        }
+        if (nextZ[p] != NONE) {
+            prevZ[nextZ[p]] = prevZ[p];
+        }
+    }
+
+    private int node(int i) {
+        if (size == vertex.length) {
+            int capacity = size * 2;
+            vertex = Arrays.copyOf(vertex, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+            z = Arrays.copyOf(z, capacity);
+            prevZ = Arrays.copyOf(prevZ, capacity);
+            nextZ = Arrays.copyOf(nextZ, capacity);
+            steiner = Arrays.copyOf(steiner, capacity);
+        }
+
+        vertex[size] = i;
+        x[size] = xy[2 * i];
+        y[size] = xy[2 * i + 1];
+        prevZ[size] = NONE;
+        nextZ[size] = NONE;
+
+        return size++;
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if (count + 3 > triangles.length) {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+        }
+
+        triangles[count++] = a;
+        triangles[count++] = b;
+        triangles[count++] = c;
+    }
+
+    /*
+     * Twice the signed area of the vertices from start up to end, positive
+     * when they wind counter clockwise.
+     */
+    private double signedArea(int start, int end) {
+        double sum = 0;
+
+        for (int i = start, j = end - 1; i < end; j = i, i++) {
+            sum += (xy[2 * j] - xy[2 * i]) * (xy[2 * i + 1] + xy[2 * j + 1]);
+        }
+
+        return sum;
+    }
+
+    /*
+     * Checks if p lies inside or on the triangle a, b, c.
+     */
+    private static boolean pointInTriangle(double ax, double ay, double bx,
+            double by, double cx, double cy, double px, double py) {
+
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+}
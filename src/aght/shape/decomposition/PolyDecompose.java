@@ -2,127 +2,334 @@ package aght.shape.decomposition;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import aght.math.Vector2d;
 
 /**
  * PolyDecompose.
+ * <p>
+ * Splits polygons into triangles or convex pieces. Holds no state between
+ * calls, so one instance can be shared by any number of threads.
  *
  * @author Andy Tang
  * @version 2018
  */
 public class PolyDecompose {
 
-    public Vector2d[][] triangulate(Vector2d[] v) {
-        List<Vector2d> vertices = new ArrayList<Vector2d>(Arrays.asList(v));
-
-        List<ArrayList<Vector2d>> triangles = new ArrayList<ArrayList<Vector2d>>();
-
-        while (true) {
+    /**
+     * Ways of splitting a polygon into convex pieces.
+     */
+    public enum Mode {
+
+        /**
+         * Split into n - 2 triangles by ear clipping.
+         */
+        TRIANGULATE,
+
+        /**
+         * Triangulate, then merge the triangles into larger convex pieces
+         * (Hertel-Mehlhorn). Gives at most four times the minimum number of
+         * convex pieces.
+         */
+        CONVEX
+    }
 
-            boolean isCreated = false;
+    /**
+     * Splits a polygon into convex pieces.
+     *
+     * @param v
+     *            the vertices of the polygon
+     * @param mode
+     *            how to split the polygon
+     * @return the vertices of every piece
+     */
+    public Vector2d[][] decompose(Vector2d[] v, Mode mode) {
+        return decompose(v, null, mode);
+    }
 
-            for (int i = 0; i < vertices.size(); i++) {
-                int prevIndex = i - 1 == -1 ? vertices.size() - 1 : i - 1;
-                int currIndex = i;
-                int nextIndex = i + 1 == vertices.size() ? 0 : i + 1;
+    /**
+     * Splits a polygon with holes into convex pieces.
+     *
+     * @param v
+     *            the vertices of the outer boundary
+     * @param holes
+     *            the vertices of every hole, or null if there are none
+     * @param mode
+     *            how to split the polygon
+     * @return the vertices of every piece
+     */
+    public Vector2d[][] decompose(Vector2d[] v, Vector2d[][] holes,
+            Mode mode) {
 
-                Vector2d prev = vertices.get(prevIndex);
-                Vector2d curr = vertices.get(currIndex);
-                Vector2d next = vertices.get(nextIndex);
+        Vector2d[] all = concat(v, holes);
+        int[][] triangles = triangulateIndices(v, holes);
 
-                if (Vector2d.cross(Vector2d.sub(prev, curr),
-                        Vector2d.sub(next, curr)) >= 0) {
-                    continue;
-                }
+        if (mode == Mode.TRIANGULATE) {
+            return toVertices(all, triangles);
+        }
 
-                int[] skips = { prevIndex, currIndex, nextIndex };
+        return toVertices(all, mergeConvex(all, triangles));
+    }
 
-                if (pointInTriangle(new Vector2d[] { prev, curr, next },
-                        vertices.toArray(new Vector2d[vertices.size()]),
-                        skips)) {
-                    continue;
-                }
+    public Vector2d[][] triangulate(Vector2d[] v) {
+        return toVertices(v, triangulateIndices(v));
+    }
 
-                ArrayList<Vector2d> triangleVerts = new ArrayList<Vector2d>();
-                triangleVerts.add(prev.clone());
-                triangleVerts.add(curr.clone());
-                triangleVerts.add(next.clone());
+    /**
+     * Triangulates a polygon by ear clipping, see {@link EarClipper}.
+     *
+     * @param v
+     *            the vertices of the polygon
+     * @return the indices of the vertices of every triangle
+     */
+    public int[][] triangulateIndices(Vector2d[] v) {
+        return triangulateIndices(v, null);
+    }
 
-                triangles.add(triangleVerts);
+    /**
+     * Triangulates a polygon with holes by ear clipping, see
+     * {@link EarClipper}.
+     *
+     * @param v
+     *            the vertices of the outer boundary
+     * @param holes
+     *            the vertices of every hole, or null if there are none
+     * @return the indices of the vertices of every triangle, counting the
+     *         vertices of the holes after the ones of the boundary
+     */
+    public int[][] triangulateIndices(Vector2d[] v, Vector2d[][] holes) {
+        Vector2d[] all = concat(v, holes);
 
-                vertices.remove(currIndex);
+        double[] xy = new double[2 * all.length];
+        for (int i = 0; i < all.length; i++) {
+            xy[2 * i] = all[i].x;
+            xy[2 * i + 1] = all[i].y;
+        }
 
-                isCreated = true;
+        int[] starts = null;
+        if (holes != null) {
+            starts = new int[holes.length];
+            for (int i = 0, start = v.length; i < holes.length; i++) {
+                starts[i] = start;
+                start += holes[i].length;
             }
+        }
 
-            if (!isCreated) {
-                break;
-            }
+        int[] flat = EarClipper.triangulate(xy, starts);
+
+        int[][] triangles = new int[flat.length / 3][];
+        for (int i = 0; i < triangles.length; i++) {
+            triangles[i] = new int[] { flat[3 * i], flat[3 * i + 1],
+                    flat[3 * i + 2] };
         }
 
-        return convertToBasicArray(triangles);
+        return triangles;
     }
-    
-    private boolean pointInTriangle(Vector2d[] triPoints, Vector2d[] polyPoints,
-            int[] skips) {
 
-        for (int i = 0; i < polyPoints.length; i++) {
+    /*
+     * Hertel-Mehlhorn: removes every diagonal whose two pieces still form a
+     * convex polygon once merged. Pieces keep the winding of the triangles, so
+     * a diagonal u -> v of one piece is v -> u in its neighbour.
+     */
+    private int[][] mergeConvex(Vector2d[] v, int[][] triangles) {
+        int[][] pieces = triangles.clone();
+        boolean[] merged = new boolean[pieces.length];
+
+        Map<Long, Integer> owners = new HashMap<Long, Integer>();
+        for (int p = 0; p < pieces.length; p++) {
+            for (int k = 0; k < pieces[p].length; k++) {
+                owners.put(edge(pieces[p], k), p);
+            }
+        }
 
-            if (findMatch(skips, i) != -1) {
+        for (int p = 0; p < pieces.length; p++) {
+            if (merged[p]) {
                 continue;
             }
 
-            return triPoint(triPoints[0], triPoints[1], triPoints[2],
-                    polyPoints[i]);
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                int[] piece = pieces[p];
+
+                for (int k = 0; k < piece.length; k++) {
+                    int u = piece[k];
+                    int w = piece[(k + 1) % piece.length];
+                    Integer q = owners.get(key(w, u));
+
+                    if (q == null || q == p) {
+                        continue;
+                    }
+
+                    int[] union = join(piece, k, pieces[q]);
+                    if (!isConvex(v, union)) {
+                        continue;
+                    }
+
+                    owners.remove(key(u, w));
+                    owners.remove(key(w, u));
+                    for (int n = 0; n < pieces[q].length; n++) {
+                        long e = edge(pieces[q], n);
+                        if (owners.containsKey(e)) {
+                            owners.put(e, p);
+                        }
+                    }
+
+                    pieces[p] = union;
+                    merged[q] = true;
+                    grew = true;
+                    break;
+                }
+            }
+        }
 
+        List<int[]> result = new ArrayList<int[]>();
+        for (int p = 0; p < pieces.length; p++) {
+            if (!merged[p]) {
+                result.add(pieces[p]);
+            }
         }
 
-        return false;
+        return result.toArray(new int[result.size()][]);
     }
 
-    private Vector2d[][] convertToBasicArray(List<ArrayList<Vector2d>> list) {
-        Vector2d[][] array = new Vector2d[list.size()][];
-        for (int i = 0; i < list.size(); i++) {
-            ArrayList<Vector2d> row = list.get(i);
-            array[i] = row.toArray(new Vector2d[row.size()]);
+    /*
+     * Joins two pieces sharing the edge k of the first piece. The result goes
+     * around the first piece from the end of the edge to its start, then
+     * around the second piece back to the end of the edge.
+     */
+    private static int[] join(int[] a, int k, int[] b) {
+        int w = a[(k + 1) % a.length];
+
+        int j = 0;
+        while (b[j] != w) {
+            j++;
+        }
+
+        int[] union = new int[a.length + b.length - 2];
+        int n = 0;
+
+        for (int i = 1; i <= a.length; i++) {
+            union[n++] = a[(k + i) % a.length];
         }
 
-        return array;
+        for (int i = 2; i < b.length; i++) {
+            union[n++] = b[(j + i) % b.length];
+        }
+
+        return union;
     }
 
     /*
-     * Triangle, point collision using Barycentric Coordinates for faster
-     * computation
+     * Checks that every vertex of a piece turns the same way as the ears of
+     * the triangulation, allowing collinear vertices.
      */
-    private static boolean triPoint(Vector2d a, Vector2d b, Vector2d c,
-            Vector2d p) {
+    private static boolean isConvex(Vector2d[] v, int[] piece) {
+        int length = piece.length;
 
-        Vector2d v0 = Vector2d.sub(c, a);
-        Vector2d v1 = Vector2d.sub(b, a);
-        Vector2d v2 = Vector2d.sub(p, a);
+        for (int i = 0; i < length; i++) {
+            Vector2d prev = v[piece[(i + length - 1) % length]];
+            Vector2d curr = v[piece[i]];
+            Vector2d next = v[piece[(i + 1) % length]];
+
+            if (Vector2d.cross3(curr, prev, next) > 0) {
+                return false;
+            }
+        }
 
-        double dot00 = Vector2d.dot(v0, v0);
-        double dot01 = Vector2d.dot(v0, v1);
-        double dot02 = Vector2d.dot(v0, v2);
-        double dot11 = Vector2d.dot(v1, v1);
-        double dot12 = Vector2d.dot(v1, v2);
+        return true;
+    }
 
-        double invDenom = 1 / (dot00 * dot11 - dot01 * dot01);
-        double u = (dot11 * dot02 - dot01 * dot12) * invDenom;
-        double v = (dot00 * dot12 - dot01 * dot02) * invDenom;
+    private static long edge(int[] piece, int k) {
+        return key(piece[k], piece[(k + 1) % piece.length]);
+    }
 
-        return (u >= 0) && (v >= 0) && (u + v < 1);
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
     }
 
-    private int findMatch(int[] arr, int index) {
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i] == index) {
-                return i;
+    private static Vector2d[] concat(Vector2d[] v, Vector2d[][] holes) {
+        if (holes == null || holes.length == 0) {
+            return v;
+        }
+
+        int length = v.length;
+        for (Vector2d[] hole : holes) {
+            length += hole.length;
+        }
+
+        Vector2d[] all = Arrays.copyOf(v, length);
+        int n = v.length;
+        for (Vector2d[] hole : holes) {
+            System.arraycopy(hole, 0, all, n, hole.length);
+            n += hole.length;
+        }
+
+        return all;
+    }
+
+    private static Vector2d[][] toVertices(Vector2d[] v, int[][] pieces) {
+        Vector2d[][] vertices = new Vector2d[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            vertices[i] = new Vector2d[pieces[i].length];
+            for (int j = 0; j < pieces[i].length; j++) {
+                vertices[i][j] = v[pieces[i][j]].clone();
             }
         }
 
-        return -1;
+        return vertices;
+    }
+
+    /**
+     * Checks if a point lies inside a triangle, using barycentric coordinates.
+     *
+     * @param ax
+     *            x component of the first vertex
+     * @param ay
+     *            y component of the first vertex
+     * @param bx
+     *            x component of the second vertex
+     * @param by
+     *            y component of the second vertex
+     * @param cx
+     *            x component of the third vertex
+     * @param cy
+     *            y component of the third vertex
+     * @param px
+     *            x component of the point
+     * @param py
+     *            y component of the point
+     * @return true if the point is inside the triangle
+     */
+    public static boolean triPoint(double ax, double ay, double bx, double by,
+            double cx, double cy, double px, double py) {
+
+        double v0x = cx - ax;
+        double v0y = cy - ay;
+        double v1x = bx - ax;
+        double v1y = by - ay;
+        double v2x = px - ax;
+        double v2y = py - ay;
+
+        double dot00 = v0x * v0x + v0y * v0y;
+        double dot01 = v0x * v1x + v0y * v1y;
+        double dot02 = v0x * v2x + v0y * v2y;
+        double dot11 = v1x * v1x + v1y * v1y;
+        double dot12 = v1x * v2x + v1y * v2y;
+
+        // Degenerate triangles have no inside, and would divide by about 0
+        double denom = dot00 * dot11 - dot01 * dot01;
+        if (denom <= 1e-12 * dot00 * dot11) {
+            return false;
+        }
+
+        double invDenom = 1 / denom;
+        double u = (dot11 * dot02 - dot01 * dot12) * invDenom;
+        double v = (dot00 * dot12 - dot01 * dot02) * invDenom;
+
+        return (u >= 0) && (v >= 0) && (u + v < 1);
     }
 }